@@ -0,0 +1,243 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Headless benchmarks of the generator on a synthetic corpus: java -jar MicrosGen.jar bench --entities 50 --json
+public class Bench {
+    private static final String USAGE_TEXT = """
+            Usage: java -jar MicrosGen.jar bench [options]
+
+              --entities <n>      Entities per corpus (default 50)
+              --fields <n>        Plain fields per entity (default 10)
+              --relations <n>     Relations from every entity to the ones before it (default 3)
+              --flavor <flavor>   jpa, mongo or all (default all)
+              --warmup <n>        Untimed iterations before each benchmark (default 2)
+              --iterations <n>    Timed iterations of each benchmark (default 5)
+              --threads <n>       Models generated at the same time (default: number of cores)
+              --dir <dir>         Write the corpus there and keep it, a temp directory is removed otherwise
+              --json              Print the results as JSON
+
+            Exit codes: 0 all benchmarks ran, 1 a benchmark failed, 2 invalid arguments
+            """;
+
+    private static final List<ModelDescriptor.Flavor> FLAVORS = List.of(ModelDescriptor.Flavor.JPA, ModelDescriptor.Flavor.MONGO);
+
+    private record Options(int entities, int fields, int relations, List<ModelDescriptor.Flavor> flavors,
+                           int warmup, int iterations, Path dir, boolean json) {
+    }
+
+    // Milliseconds of every timed iteration, ops is the work one iteration does
+    private record Result(String name, ModelDescriptor.Flavor flavor, int ops, double[] millis) {
+        double mean() {
+            return Arrays.stream(millis).average().orElse(0);
+        }
+
+        double median() {
+            double[] sorted = millis.clone();
+            Arrays.sort(sorted);
+            int middle = sorted.length / 2;
+            return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+        }
+
+        double min() {
+            return Arrays.stream(millis).min().orElse(0);
+        }
+
+        double max() {
+            return Arrays.stream(millis).max().orElse(0);
+        }
+    }
+
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE_TEXT);
+            return Cli.USAGE;
+        }
+
+        boolean incremental = GenerationEngine.incremental;
+        List<Result> results = new ArrayList<>();
+        Path root = null;
+        try {
+            root = options.dir() != null ? options.dir() : Files.createTempDirectory("microsgen-bench");
+            for (ModelDescriptor.Flavor flavor : options.flavors()) {
+                Path moduleDir = root.resolve(flavor.name().toLowerCase());
+                Corpus.write(moduleDir, options.entities(), options.fields(), options.relations(), flavor);
+                benchmark(options, flavor, moduleDir, results, err);
+            }
+        } catch (IOException | RuntimeException e) {
+            err.println("Benchmark failed: " + e.getMessage());
+            if (!(e instanceof GenerationException)) e.printStackTrace(err);
+            return Cli.FAILED;
+        } finally {
+            GenerationEngine.incremental = incremental;
+            if (root != null && options.dir() == null) FileChecker.deleteTempDirectory(root.toString());
+        }
+
+        out.println(options.json() ? json(options, results) : text(results));
+        return Cli.OK;
+    }
+
+    private static void benchmark(Options options, ModelDescriptor.Flavor flavor, Path moduleDir, List<Result> results, PrintStream err) throws IOException {
+        ModuleLayout layout = ModuleLayout.resolve(moduleDir.toString());
+        List<Path> modelFiles;
+        try (var paths = Files.list(layout.baseDir().resolve("model"))) {
+            modelFiles = paths.sorted().toList();
+        }
+        Map<Path, byte[]> sources = new HashMap<>();
+        for (Path modelFile : modelFiles) sources.put(modelFile, Files.readAllBytes(modelFile));
+
+        // Parsing alone, the sources are already in memory
+        results.add(measure(options, "parse", flavor, modelFiles.size(), () -> {
+            for (Path modelFile : modelFiles) ModelParser.parse(modelFile, sources.get(modelFile));
+        }, err));
+
+        // Every static file filled in once per entity
+        Templates.compileAll();
+        List<Map<String, String>> values = new ArrayList<>();
+        for (Path modelFile : modelFiles) values.add(values(ModelParser.parse(modelFile, sources.get(modelFile))));
+        results.add(measure(options, "render", flavor, modelFiles.size() * Templates.names().size(), () -> {
+            for (Map<String, String> entity : values) {
+                for (String name : Templates.names()) Templates.get(name).render(new StringBuilder(), entity);
+            }
+        }, err));
+
+        // Every action end to end with a cold model cache, after one full run so the actions find what they read
+        GenerationEngine.incremental = false;
+        GenerationEngine.run(GenerateAction.PIPELINE, moduleDir.toString(), ModuleLayout.ALL_MODELS);
+        for (GenerateAction action : GenerateAction.values()) {
+            results.add(measure(options, "generate." + action, flavor, modelFiles.size(), () -> {
+                ModelCache.clear();
+                GenerationEngine.run(action, moduleDir.toString(), ModuleLayout.ALL_MODELS);
+            }, err));
+        }
+
+        // A rerun without changes, what most clicks in the app are
+        GenerationEngine.incremental = true;
+        GenerationEngine.run(GenerateAction.PIPELINE, moduleDir.toString(), ModuleLayout.ALL_MODELS);
+        results.add(measure(options, "generate.PIPELINE.upToDate", flavor, modelFiles.size(), () ->
+                GenerationEngine.run(GenerateAction.PIPELINE, moduleDir.toString(), ModuleLayout.ALL_MODELS), err));
+    }
+
+    private static Result measure(Options options, String name, ModelDescriptor.Flavor flavor, int ops, Runnable benchmark, PrintStream err) {
+        for (int i = 0; i < options.warmup(); i++) benchmark.run();
+        double[] millis = new double[options.iterations()];
+        for (int i = 0; i < millis.length; i++) {
+            long start = System.nanoTime();
+            benchmark.run();
+            millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Result result = new Result(name, flavor, ops, millis);
+        // Progress goes to stderr so the results stay machine-readable
+        err.println(String.format(Locale.ROOT, "%s %s: %.2f ms", flavor.name().toLowerCase(), name, result.median()));
+        return result;
+    }
+
+    // A value for every placeholder, taken from the entity like the generators do
+    private static Map<String, String> values(ModelDescriptor model) {
+        String modelName = model.className();
+        String lowercaseModelName = Names.decapitalize(modelName);
+        return Map.of("model_name", modelName, "lowercase_model_name", lowercaseModelName,
+                "request_model_name", lowercaseModelName + "Request", "id_type", model.idType(),
+                "class_name", modelName, "controller_api", "/api/v1/" + lowercaseModelName,
+                "id_property", Names.capitalize(model.idName()), "id_parser", model.idType() + "::valueOf");
+    }
+
+    private static Options parse(String[] args) {
+        int entities = 50;
+        int fields = 10;
+        int relations = 3;
+        List<ModelDescriptor.Flavor> flavors = FLAVORS;
+        int warmup = 2;
+        int iterations = 5;
+        Path dir = null;
+        boolean json = false;
+
+        // args[0] is the 'bench' command
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--entities" -> entities = Cli.positive(Cli.value(args, ++i, "--entities"), "--entities");
+                case "--fields" -> fields = Cli.positive(Cli.value(args, ++i, "--fields"), "--fields");
+                case "--relations" -> relations = count(Cli.value(args, ++i, "--relations"), "--relations");
+                case "--flavor" -> {
+                    String value = Cli.value(args, ++i, "--flavor").toUpperCase(Locale.ROOT);
+                    try {
+                        flavors = value.equals("ALL") ? FLAVORS : List.of(ModelDescriptor.Flavor.valueOf(value));
+                    } catch (IllegalArgumentException e) {
+                        flavors = List.of();
+                    }
+                    if (flavors.isEmpty() || flavors.contains(ModelDescriptor.Flavor.UNKNOWN)) {
+                        throw new IllegalArgumentException("Unknown flavor " + value);
+                    }
+                }
+                case "--warmup" -> warmup = count(Cli.value(args, ++i, "--warmup"), "--warmup");
+                case "--iterations" -> iterations = Cli.positive(Cli.value(args, ++i, "--iterations"), "--iterations");
+                case "--threads" -> GenerationEngine.threads = Cli.positive(Cli.value(args, ++i, "--threads"), "--threads");
+                case "--dir" -> dir = Path.of(Cli.value(args, ++i, "--dir")).toAbsolutePath();
+                case "--json" -> json = true;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        return new Options(entities, fields, relations, flavors, warmup, iterations, dir, json);
+    }
+
+    private static int count(String value, String option) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) return number;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException(option + " must be zero or a positive number");
+    }
+
+    // One tab separated line per benchmark: flavor, name, ops per iteration, mean, median, min and max millis
+    private static String text(List<Result> results) {
+        StringBuilder out = new StringBuilder("flavor\tbenchmark\tops\tmean_ms\tmedian_ms\tmin_ms\tmax_ms");
+        for (Result result : results) {
+            out.append("\n").append(result.flavor().name().toLowerCase()).append("\t").append(result.name())
+                    .append("\t").append(result.ops()).append(String.format(Locale.ROOT, "\t%.3f\t%.3f\t%.3f\t%.3f",
+                            result.mean(), result.median(), result.min(), result.max()));
+        }
+        return out.toString();
+    }
+
+    // Version and machine come first so runs of different releases can be compared
+    private static String json(Options options, List<Result> results) {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"version\":").append(Json.string(FileChecker.appVersion()));
+        out.append(",\"java\":").append(Json.string(System.getProperty("java.version")));
+        out.append(",\"os\":").append(Json.string(System.getProperty("os.name") + " " + System.getProperty("os.arch")));
+        out.append(",\"cores\":").append(Runtime.getRuntime().availableProcessors());
+        out.append(",\"threads\":").append(GenerationEngine.threads);
+        out.append(",\"corpus\":{\"entities\":").append(options.entities()).append(",\"fields\":").append(options.fields())
+                .append(",\"relations\":").append(options.relations()).append("}");
+        out.append(",\"warmup\":").append(options.warmup()).append(",\"iterations\":").append(options.iterations());
+        out.append(",\"results\":[");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            if (i > 0) out.append(",");
+            out.append("{\"benchmark\":").append(Json.string(result.name()));
+            out.append(",\"flavor\":").append(Json.string(result.flavor().name().toLowerCase()));
+            out.append(",\"ops\":").append(result.ops());
+            out.append(String.format(Locale.ROOT, ",\"meanMs\":%.3f,\"medianMs\":%.3f,\"minMs\":%.3f,\"maxMs\":%.3f",
+                    result.mean(), result.median(), result.min(), result.max()));
+            out.append(",\"millis\":[");
+            for (int j = 0; j < result.millis().length; j++) {
+                if (j > 0) out.append(",");
+                out.append(String.format(Locale.ROOT, "%.3f", result.millis()[j]));
+            }
+            out.append("]}");
+        }
+        return out.append("]}").toString();
+    }
+}
@@ -0,0 +1,240 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Headless entry point: java -jar MicrosGen.jar generate --action FULL_SERVICE --model All --modules a b c
+public class Cli {
+    public static final int OK = 0;
+    public static final int FAILED = 1;
+    public static final int USAGE = 2;
+
+    private static final String USAGE_TEXT = """
+            Usage: java -jar MicrosGen.jar generate --action <action> --modules <dir>... [options]
+
+              --action <action>   %s
+              --model <model>     Model class name or All (default All)
+              --modules <dir>...  One or more module directories, each with src/.../model
+              --jobs <n>          Modules generated at the same time (default: number of cores)
+              --threads <n>       Models generated at the same time in one module (default: number of cores)
+              --full              Ignore the manifest and rebuild every file
+              --cache             Cache entity reads in the services with Caffeine
+              --references        JPA services check related entities exist instead of loading them
+              --bulk              Bulk create, update and delete endpoints with batched persistence
+              --pagination <p>    getAll as page (default), slice without a count query or keyset with a cursor
+              --fetch-graphs      JPA repositories load the relations the responses read with entity graphs
+              --projections       getById and getAll select the response DTO instead of loading the entity
+              --indexes           Index foreign keys, references and lookups, with a Flyway migration or a Mongo index config
+              --reactive          WebFlux controllers, Mono and Flux services, R2DBC and reactive Mongo repositories
+              --virtual-threads   A Spring profile for virtual threads, services load related entities at the same time
+              --metrics           Micrometer timers on the service methods, tagged by entity and operation
+              --export            A streaming export endpoint writing every row as NDJSON or a JSON array
+              --logging <l>       Service logging: full entities at INFO (default), ids at DEBUG or off
+              --dependencies      Add the dependencies of the generated code to pom.xml, also done for the options that need a starter
+              --json              Print the summary as JSON
+
+            Exit codes: 0 all modules generated, 1 at least one module failed, 2 invalid arguments
+            """;
+
+    private record Options(GenerateAction action, String model, List<String> modules, int jobs, boolean json) {
+    }
+
+    // Outcome of one module, error is null when the module was generated
+    private record Result(String module, GenerationReport report, String error, long millis, RunMetrics metrics,
+                          List<ModelLinter.Finding> findings) {
+    }
+
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(usage());
+            return USAGE;
+        }
+
+        List<Result> results = new ArrayList<>();
+        List<Future<Result>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.jobs(), options.modules().size()))) {
+            for (String module : options.modules()) {
+                futures.add(executor.submit(() -> generate(options, module)));
+            }
+            for (Future<Result> future : futures) results.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted");
+            return FAILED;
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace(err);
+            return FAILED;
+        }
+
+        if (options.json()) {
+            out.println(json(options, results));
+        } else {
+            for (Result result : results) out.println(text(result));
+        }
+        return results.stream().allMatch(result -> result.error() == null) ? OK : FAILED;
+    }
+
+    private static Result generate(Options options, String module) {
+        long start = System.nanoTime();
+        RunMetrics metrics = new RunMetrics(options.action().name(), module);
+        List<ModelLinter.Finding> findings = ModelLinter.lint(module, options.model());
+        try {
+            GenerationReport report = GenerationEngine.run(options.action(), module, options.model(), event -> {
+            }, metrics);
+            return new Result(module, report, null, (System.nanoTime() - start) / 1_000_000, metrics, findings);
+        } catch (RuntimeException e) {
+            if (!(e instanceof GenerationException)) e.printStackTrace();
+            return new Result(module, null, e.getMessage(), (System.nanoTime() - start) / 1_000_000, metrics, findings);
+        }
+    }
+
+    private static Options parse(String[] args) {
+        GenerateAction action = null;
+        String model = ModuleLayout.ALL_MODELS;
+        List<String> modules = new ArrayList<>();
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean json = false;
+
+        // args[0] is the 'generate' command
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--action" -> {
+                    String value = value(args, ++i, "--action").toUpperCase(Locale.ROOT);
+                    try {
+                        action = GenerateAction.valueOf(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown action " + value);
+                    }
+                }
+                case "--model" -> {
+                    String value = value(args, ++i, "--model");
+                    model = value.equalsIgnoreCase("All") ? ModuleLayout.ALL_MODELS : value;
+                }
+                case "--modules" -> {
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) modules.add(args[++i]);
+                }
+                case "--jobs" -> jobs = positive(value(args, ++i, "--jobs"), "--jobs");
+                case "--threads" -> GenerationEngine.threads = positive(value(args, ++i, "--threads"), "--threads");
+                case "--full" -> GenerationEngine.incremental = false;
+                case "--cache" -> GeneratorOptions.cache = true;
+                case "--references" -> GeneratorOptions.references = true;
+                case "--bulk" -> GeneratorOptions.bulk = true;
+                case "--pagination" -> {
+                    String value = value(args, ++i, "--pagination").toUpperCase(Locale.ROOT);
+                    try {
+                        GeneratorOptions.pagination = GeneratorOptions.Pagination.valueOf(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown pagination " + value);
+                    }
+                }
+                case "--logging" -> {
+                    String value = value(args, ++i, "--logging").toUpperCase(Locale.ROOT);
+                    try {
+                        GeneratorOptions.logging = GeneratorOptions.Logging.valueOf(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown logging " + value);
+                    }
+                }
+                case "--fetch-graphs" -> GeneratorOptions.fetchGraphs = true;
+                case "--projections" -> GeneratorOptions.projections = true;
+                case "--indexes" -> GeneratorOptions.indexes = true;
+                case "--reactive" -> GeneratorOptions.reactive = true;
+                case "--virtual-threads" -> GeneratorOptions.virtualThreads = true;
+                case "--metrics" -> GeneratorOptions.metrics = true;
+                case "--export" -> GeneratorOptions.export = true;
+                case "--dependencies" -> GeneratorOptions.dependencies = true;
+                case "--json" -> json = true;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (action == null) throw new IllegalArgumentException("Missing --action");
+        if (modules.isEmpty()) throw new IllegalArgumentException("Missing --modules");
+        return new Options(action, model, modules, jobs, json);
+    }
+
+    static String value(String[] args, int index, String option) {
+        if (index >= args.length || args[index].startsWith("--")) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    static int positive(String value, String option) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) return number;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException(option + " must be a positive number");
+    }
+
+    private static String usage() {
+        List<String> actions = new ArrayList<>();
+        for (GenerateAction action : GenerateAction.values()) actions.add(action.name());
+        return USAGE_TEXT.formatted(String.join(", ", actions));
+    }
+
+    // One tab separated line per module: status, module, written, kept edits, up to date steps, millis and error.
+    // A LINT line follows for every model finding: module, model and field, rule, problem and fix
+    private static String text(Result result) {
+        StringBuilder out = new StringBuilder();
+        if (result.error() != null) {
+            out.append("FAILED\t").append(result.module()).append("\t-\t-\t-\t").append(result.millis()).append("\t")
+                    .append(result.error().replace("\n", "; "));
+        } else {
+            GenerationReport report = result.report();
+            out.append("OK\t").append(result.module()).append("\t").append(report.written().size()).append("\t").append(report.edited().size())
+                    .append("\t").append(report.upToDate()).append("\t").append(result.millis()).append("\t").append(String.join(",", report.edited()));
+        }
+        for (ModelLinter.Finding finding : result.findings()) {
+            out.append("\nLINT\t").append(result.module()).append("\t").append(finding.model())
+                    .append(finding.field() != null ? "." + finding.field() : "").append("\t").append(finding.rule())
+                    .append("\t").append(finding.message()).append("\t").append(finding.fix() != null ? finding.fix() : "-");
+        }
+        return out.toString();
+    }
+
+    private static String json(Options options, List<Result> results) {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"action\":").append(Json.string(options.action().name()));
+        out.append(",\"model\":").append(Json.string(options.model()));
+        out.append(",\"modules\":[");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            if (i > 0) out.append(",");
+            out.append("{\"module\":").append(Json.string(result.module()));
+            out.append(",\"status\":").append(Json.string(result.error() == null ? "OK" : "FAILED"));
+            out.append(",\"millis\":").append(result.millis());
+            out.append(",\"metrics\":").append(result.metrics().json());
+            out.append(",\"findings\":[");
+            for (int j = 0; j < result.findings().size(); j++) {
+                ModelLinter.Finding finding = result.findings().get(j);
+                if (j > 0) out.append(",");
+                out.append("{\"model\":").append(Json.string(finding.model()));
+                out.append(",\"field\":").append(finding.field() != null ? Json.string(finding.field()) : "null");
+                out.append(",\"rule\":").append(Json.string(finding.rule()));
+                out.append(",\"message\":").append(Json.string(finding.message()));
+                out.append(",\"fix\":").append(finding.fix() != null ? Json.string(finding.fix()) : "null");
+                out.append("}");
+            }
+            out.append("]");
+            if (result.error() != null) {
+                out.append(",\"error\":").append(Json.string(result.error()));
+            } else {
+                out.append(",\"written\":").append(Json.strings(result.report().written()));
+                out.append(",\"edited\":").append(Json.strings(result.report().edited()));
+                out.append(",\"upToDate\":").append(result.report().upToDate());
+            }
+            out.append("}");
+        }
+        return out.append("]}").toString();
+    }
+}
@@ -0,0 +1,76 @@
+import java.nio.file.Path;
+import java.util.Map;
+
+// Spring configuration classes the generated code needs for the enabled options
+public class ConfigGenerator {
+
+    public static Path directory(ModuleLayout layout) {
+        return layout.baseDir().resolve("config");
+    }
+
+    public static void generateCacheConfig(ModuleLayout layout) {
+        if (GeneratorOptions.reactive() || !GeneratorOptions.cache()) return;
+        Path configFile = directory(layout).resolve("CacheConfig.java");
+        StringBuilder out = new StringBuilder("package ").append(layout.packageOf(configFile.getParent())).append(";\n");
+        Templates.get("main/config/CacheConfig").render(out, Map.of());
+        Output.write(configFile, out);
+    }
+
+    public static void generateMetricsConfig(ModuleLayout layout) {
+        if (GeneratorOptions.reactive() || !GeneratorOptions.metrics()) return;
+        Path configFile = directory(layout).resolve("MetricsConfig.java");
+        StringBuilder out = new StringBuilder("package ").append(layout.packageOf(configFile.getParent())).append(";\n");
+        Templates.get("main/config/MetricsConfig").render(out, Map.of());
+        Output.write(configFile, out);
+    }
+
+    // Hibernate JDBC batching for the bulk endpoints, only modules with JPA models have Hibernate
+    public static void generateBatchConfig(ModuleLayout layout) {
+        if (GeneratorOptions.reactive() || !GeneratorOptions.bulk()) return;
+        boolean jpa = false;
+        for (ModelDescriptor model : layout.models(ModuleLayout.ALL_MODELS)) {
+            Manifest.read(model.path(), model.hash());
+            jpa |= model.flavor() == ModelDescriptor.Flavor.JPA;
+        }
+        if (!jpa) return;
+        Path configFile = directory(layout).resolve("BatchConfig.java");
+        StringBuilder out = new StringBuilder("package ").append(layout.packageOf(configFile.getParent())).append(";\n");
+        Templates.get("main/config/BatchConfig").render(out, Map.of());
+        Output.write(configFile, out);
+    }
+
+    // The virtual-threads profile: Tomcat serves every request on a new virtual thread, so the connection pools bound
+    // the load on the databases. JPA modules size Hikari in the profile, Mongo modules get a pool customizer
+    public static void generateVirtualThreadProfile(ModuleLayout layout) {
+        if (GeneratorOptions.reactive() || !GeneratorOptions.virtualThreads()) return;
+        boolean jpa = false;
+        boolean mongo = false;
+        for (ModelDescriptor model : layout.models(ModuleLayout.ALL_MODELS)) {
+            Manifest.read(model.path(), model.hash());
+            jpa |= model.flavor() == ModelDescriptor.Flavor.JPA;
+            mongo |= model.flavor() == ModelDescriptor.Flavor.MONGO;
+        }
+
+        StringBuilder profile = new StringBuilder();
+        profile.append("# Virtual threads for the blocking services, generated by MicrosGen.\n");
+        profile.append("# Activate with spring.profiles.active=virtual-threads, needs Java 21 and Spring Boot 3.2 or later\n");
+        profile.append("spring.threads.virtual.enabled=true\n");
+        if (jpa) {
+            profile.append("\n");
+            profile.append("# A fixed pool sized for the database, not for the number of threads waiting on it.\n");
+            profile.append("# Requests that get no connection within the timeout fail instead of piling up\n");
+            profile.append("spring.datasource.hikari.maximum-pool-size=20\n");
+            profile.append("spring.datasource.hikari.minimum-idle=20\n");
+            profile.append("spring.datasource.hikari.connection-timeout=5000\n");
+        }
+        Output.write(layout.moduleDir().resolve("src/main/resources/application-virtual-threads.properties"), profile);
+
+        if (!mongo) return;
+        for (String config : new String[]{"MongoPoolConfig", "LookupExecutorConfig"}) {
+            Path configFile = directory(layout).resolve(config + ".java");
+            StringBuilder out = new StringBuilder("package ").append(layout.packageOf(configFile.getParent())).append(";\n");
+            Templates.get("main/config/" + config).render(out, Map.of());
+            Output.write(configFile, out);
+        }
+    }
+}
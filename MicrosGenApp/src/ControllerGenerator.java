@@ -0,0 +1,131 @@
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ControllerGenerator {
+
+    public static Path directory(ModuleLayout layout) {
+        return layout.baseDir().resolve("controller");
+    }
+
+    public static void generate(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+
+        // Controller works with both DTOs, so it is skipped until they exist
+        if (!Manifest.exists(layout.dtoRequest(modelName)) || !Manifest.exists(layout.dtoResponse(modelName))) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        Path controllerFile = directory(layout).resolve(modelName + "Controller.java");
+
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("model_name", modelName);
+        values.put("lowercase_model_name", lowercaseModelName);
+        values.put("request_model_name", Names.kebab(lowercaseModelName));
+        values.put("id_type", model.idType());
+        values.put("class_name", className);
+        values.put("id_property", Names.capitalize(model.idName()));
+        values.put("id_parser", idParser(model.idType()));
+        GeneratorOptions.Pagination pagination = GeneratorOptions.pagination();
+
+        StringBuilder out = new StringBuilder(5120);
+        out.append("package ").append(layout.packageOf(controllerFile.getParent())).append(";\n");
+        out.append("\n");
+        if (pagination == GeneratorOptions.Pagination.KEYSET) out.append("import ").append(basePackage).append(".dto.CursorPage;\n");
+        out.append("import ").append(basePackage).append(".dto.mapper.").append(modelName).append("DtoMapper;\n");
+        out.append("import ").append(basePackage).append(".dto.request.").append(modelName).append("DtoRequest;\n");
+        out.append("import ").append(basePackage).append(".dto.response.").append(modelName).append("DtoResponse;\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("import ").append(basePackage).append(".service.").append(modelName).append("Service;\n");
+        if (GeneratorOptions.reactive()) {
+            generateReactive(out, pagination, values);
+            Output.write(controllerFile, out);
+            return;
+        }
+        Templates.get("main/controller/static1").render(out, values);
+        if (pagination != GeneratorOptions.Pagination.PAGE) {
+            Templates.insertAfter(out, "import org.springframework.data.domain.Pageable;\n", "import org.springframework.data.domain.Slice;\n");
+            Templates.replace(out, "    @GetMapping\n", "    @PutMapping(\"/{id}\")",
+                    pagination == GeneratorOptions.Pagination.SLICE ? "main/controller/getAllSlice" : "main/controller/getAllKeyset", values);
+        }
+        if (DtoGenerator.projection(layout, model) != null) {
+            // Reads return what the service selected, the writes still map the entity they saved
+            Templates.rewrite(out, "    @GetMapping(\"/{id}\")", "    @GetMapping\n", Map.of(
+                    "        " + className + " " + lowercaseModelName + " = " + lowercaseModelName + "Service.getById(id);\n"
+                            + "        return new ResponseEntity<>(" + modelName + "DtoMapper.toResponse(" + lowercaseModelName + "), HttpStatus.OK);",
+                    "        return new ResponseEntity<>(" + lowercaseModelName + "Service.getResponseById(id), HttpStatus.OK);"));
+            Templates.rewrite(out, "    @GetMapping\n", "    @PutMapping(\"/{id}\")", Map.of(
+                    lowercaseModelName + "Service.getAll(", lowercaseModelName + "Service.getAllResponses(",
+                    "<" + className + "> ", "<" + modelName + "DtoResponse> ",
+                    ".map(" + modelName + "DtoMapper::toResponse)", ""));
+        }
+        if (GeneratorOptions.bulk()) {
+            // List endpoints go after the single ones, their imports after the template's
+            out.insert(out.indexOf("\n\n@RestController") + 1, "\nimport java.util.LinkedHashMap;\nimport java.util.List;\nimport java.util.Map;\n");
+            out.setLength(out.lastIndexOf("}"));
+            Templates.get("main/controller/bulk").render(out, values);
+            out.append("}");
+        }
+        // The export endpoint needs the exportAll the service only has when it could map the rows
+        Path serviceFile = ServiceGenerator.directory(layout).resolve(modelName + "Service.java");
+        if (GeneratorOptions.export() && Manifest.exists(serviceFile) && JavaSource.read(serviceFile).contains(" exportAll(")) {
+            appendExport(out, values);
+        }
+        Output.write(controllerFile, out);
+    }
+
+    // Streams the export of the service into the response with one JsonGenerator, the rows are never collected.
+    // The writer does not flush after every row, the generator sends its buffer when it is full
+    private static void appendExport(StringBuilder out, Map<String, String> values) {
+        String modelName = values.get("model_name");
+        String service = values.get("lowercase_model_name") + "Service";
+        out.insert(out.indexOf("import io.swagger."), "import com.fasterxml.jackson.core.JsonGenerator;\n"
+                + "import com.fasterxml.jackson.databind.ObjectMapper;\n"
+                + "import com.fasterxml.jackson.databind.ObjectWriter;\n"
+                + "import com.fasterxml.jackson.databind.SerializationFeature;\n");
+        Templates.insertAfter(out, "import org.springframework.http.HttpStatus;\n", "import org.springframework.http.MediaType;\n");
+        Templates.insertAfter(out, "import org.springframework.web.bind.annotation.*;\n",
+                "import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;\n");
+        Templates.rewrite(out, "public class ", "    @PostMapping", Map.of(
+                "    private final " + modelName + "Service " + service + ";\n",
+                "    private final " + modelName + "Service " + service + ";\n    private final ObjectMapper objectMapper;\n",
+                modelName + "Service " + service + ") {\n",
+                modelName + "Service " + service + ", ObjectMapper objectMapper) {\n",
+                "        this." + service + " = " + service + ";\n",
+                "        this." + service + " = " + service + ";\n        this.objectMapper = objectMapper;\n"));
+        out.setLength(out.lastIndexOf("}"));
+        Templates.get("main/controller/export").render(out, values);
+        out.append("}");
+    }
+
+    // WebFlux endpoints over the Mono and Flux of the service, WebFlux has no Pageable argument so pages are plain parameters
+    private static void generateReactive(StringBuilder out, GeneratorOptions.Pagination pagination, Map<String, String> values) {
+        Templates.get("main/controller/reactive").render(out, values);
+        if (pagination == GeneratorOptions.Pagination.SLICE) {
+            Templates.insertAfter(out, "import org.springframework.web.bind.annotation.*;\n", "import reactor.core.publisher.Flux;\n");
+            Templates.replace(out, "    @GetMapping\n", "    @PutMapping(\"/{id}\")", "main/controller/reactiveGetAllSlice", values);
+        } else if (pagination == GeneratorOptions.Pagination.KEYSET) {
+            Templates.insertAfter(out, "import reactor.core.publisher.Mono;\n", "\nimport java.util.List;\n");
+            Templates.replace(out, "    @GetMapping\n", "    @PutMapping(\"/{id}\")", "main/controller/reactiveGetAllKeyset", values);
+        }
+    }
+
+    // Page of a keyset paginated getAll with its cursor, shared by every controller of the module
+    public static void generateCursorPage(ModuleLayout layout) {
+        if (GeneratorOptions.pagination() != GeneratorOptions.Pagination.KEYSET) return;
+        Path cursorPageFile = layout.baseDir().resolve("dto/CursorPage.java");
+        StringBuilder out = new StringBuilder("package ").append(layout.packageOf(cursorPageFile.getParent())).append(";\n");
+        Templates.get("main/dto/CursorPage").render(out, Map.of());
+        Output.write(cursorPageFile, out);
+    }
+
+    // Turns the decoded cursor back into an id
+    private static String idParser(String idType) {
+        return switch (idType) {
+            case "String" -> "String::valueOf";
+            case "UUID" -> "UUID::fromString";
+            default -> idType + "::valueOf";
+        };
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Synthetic Spring Boot module for the benchmarks: the same entities, fields and relations for the same arguments
+public class Corpus {
+    // Field types in the order they are handed out, covers every type the generators treat specially
+    private static final String[] TYPES = {"String", "Integer", "Long", "Double", "Boolean", "BigDecimal", "LocalDate", "LocalDateTime"};
+
+    // Writes <moduleDir>/src/main/java/com/bench/<flavor>/model with entities Entity1..EntityN
+    public static Path write(Path moduleDir, int entities, int fields, int relations, ModelDescriptor.Flavor flavor) {
+        String packageName = "com.bench." + flavor.name().toLowerCase();
+        Path modelDir = moduleDir.resolve("src/main/java/" + packageName.replace('.', '/') + "/model");
+        try {
+            Files.createDirectories(modelDir);
+            for (int i = 1; i <= entities; i++) {
+                Files.writeString(modelDir.resolve("Entity" + i + ".java"), entity(packageName, i, fields, relations, flavor), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new GenerationException("Unable to write the corpus to " + moduleDir, e);
+        }
+        return modelDir;
+    }
+
+    // Every entity points to up to 'relations' entities before it, so the graph is dense but has no cycles
+    private static String entity(String packageName, int index, int fields, int relations, ModelDescriptor.Flavor flavor) {
+        StringBuilder out = new StringBuilder(512);
+        out.append("package ").append(packageName).append(".model;\n\n");
+        if (flavor == ModelDescriptor.Flavor.JPA) {
+            out.append("import jakarta.persistence.*;\n");
+        } else {
+            out.append("import org.springframework.data.annotation.Id;\n");
+            out.append("import org.springframework.data.mongodb.core.mapping.Document;\n");
+        }
+        out.append("import lombok.Data;\n\n");
+        out.append("import java.math.BigDecimal;\n");
+        out.append("import java.time.LocalDate;\n");
+        out.append("import java.time.LocalDateTime;\n\n");
+        out.append(flavor == ModelDescriptor.Flavor.JPA ? "@Entity\n" : "@Document\n");
+        out.append("@Data\n");
+        out.append("public class Entity").append(index).append(" {\n");
+        out.append("    @Id\n");
+        if (flavor == ModelDescriptor.Flavor.JPA) {
+            out.append("    @GeneratedValue\n");
+            out.append("    private Long id;\n");
+        } else {
+            out.append("    private String id;\n");
+        }
+        for (int field = 1; field <= fields; field++) {
+            out.append("    private ").append(TYPES[(index + field) % TYPES.length]).append(" field").append(field).append(";\n");
+        }
+        for (int target = index - 1; target >= Math.max(1, index - relations); target--) {
+            if (flavor == ModelDescriptor.Flavor.JPA) out.append("    @ManyToOne\n");
+            out.append("    private Entity").append(target).append(" entity").append(target).append(";\n");
+        }
+        return out.append("}\n").toString();
+    }
+}
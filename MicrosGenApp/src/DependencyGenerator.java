@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Adds the dependencies the generated code needs to the pom.xml of the module, the same ones as dependency-generator.sh.
+// The pom belongs to the user: the manifest does not track it, declared dependencies keep their version and scope,
+// and modules without a pom.xml are left as they are
+public class DependencyGenerator {
+    private record Dependency(String groupId, String artifactId, String version, String scope) {
+        Dependency(String groupId, String artifactId) {
+            this(groupId, artifactId, null, null);
+        }
+    }
+
+    // Reactive modules run on WebFlux, with both starters Spring Boot starts Spring MVC
+    private static final Map<String, String> WEBFLUX = new TreeMap<>(Map.of(
+            "spring-boot-starter-web", "spring-boot-starter-webflux",
+            "springdoc-openapi-starter-webmvc-ui", "springdoc-openapi-starter-webflux-ui"));
+
+    // Asked for in the settings, or needed by an option whose code uses another starter
+    public static boolean enabled() {
+        return GeneratorOptions.dependencies || !scriptArguments().isEmpty();
+    }
+
+    // The options of dependency-generator.sh for the current switches, the reactive code is neither cached nor timed
+    public static List<String> scriptArguments() {
+        boolean blocking = !GeneratorOptions.reactive;
+        List<String> arguments = new ArrayList<>();
+        if (blocking && GeneratorOptions.cache) arguments.add("cache");
+        if (blocking && GeneratorOptions.fetchGraphs) arguments.add("fetch");
+        if (GeneratorOptions.reactive) arguments.add("reactive");
+        if (blocking && GeneratorOptions.virtualThreads) arguments.add("virtual");
+        if (blocking && GeneratorOptions.metrics) arguments.add("metrics");
+        if (blocking && GeneratorOptions.export) arguments.add("export");
+        if (GeneratorOptions.indexes) arguments.add("indexes");
+        return arguments;
+    }
+
+    // Returns what was added to the pom, empty when nothing was missing
+    public static List<String> generate(ModuleLayout layout) {
+        Path pom = layout.moduleDir().resolve("pom.xml");
+        if (!Files.isRegularFile(pom)) return List.of();
+        String xml;
+        try {
+            xml = Files.readString(pom);
+        } catch (IOException e) {
+            throw new GenerationException("Unable to read " + pom, e);
+        }
+        if (scriptArguments().contains("virtual")) checkVirtualThreads(pom, xml);
+        int start = projectDependencies(xml);
+        if (start < 0) throw new GenerationException("No <dependencies> in " + pom);
+        int end = xml.indexOf("</dependencies>", start);
+        if (end < 0) throw new GenerationException("No </dependencies> in " + pom);
+
+        String declared = xml.substring(start, end);
+        List<String> added = new ArrayList<>();
+        if (scriptArguments().contains("reactive")) {
+            // The Spring MVC starters the pom declares are replaced, keeping their version
+            for (Map.Entry<String, String> starter : WEBFLUX.entrySet()) {
+                String mvc = "<artifactId>" + starter.getKey() + "</artifactId>";
+                String webflux = "<artifactId>" + starter.getValue() + "</artifactId>";
+                if (!declared.contains(mvc) || declared.contains(webflux)) continue;
+                declared = declared.replace(mvc, webflux);
+                added.add(starter.getValue() + " instead of " + starter.getKey());
+            }
+            xml = xml.substring(0, start) + declared + xml.substring(end);
+            end = start + declared.length();
+        }
+        String newline = xml.contains("\r\n") ? "\r\n" : "\n";
+        // Before the line of </dependencies>, one level deeper than it
+        int insert = xml.lastIndexOf('\n', end) + 1;
+        String indent = xml.substring(insert, end);
+        if (!indent.isBlank()) {
+            insert = end;
+            indent = "    ";
+        }
+        StringBuilder missing = new StringBuilder();
+        for (Dependency dependency : required(layout)) {
+            if (declared.contains("<artifactId>" + dependency.artifactId() + "</artifactId>")) continue;
+            added.add(dependency.artifactId());
+            appendDependency(missing, dependency, indent + "    ", newline);
+        }
+        if (added.isEmpty()) return added;
+        // On their own lines when </dependencies> shares its line
+        if (insert == end && !missing.isEmpty()) missing.insert(0, newline).append(indent);
+        Output.write(pom, xml.substring(0, insert) + missing + xml.substring(insert));
+        return added;
+    }
+
+    private static List<Dependency> required(ModuleLayout layout) {
+        List<String> options = scriptArguments();
+        boolean jpa = false;
+        boolean mongo = false;
+        for (ModelDescriptor model : layout.models(ModuleLayout.ALL_MODELS)) {
+            jpa |= model.flavor() == ModelDescriptor.Flavor.JPA;
+            mongo |= model.flavor() == ModelDescriptor.Flavor.MONGO;
+        }
+        List<Dependency> dependencies = new ArrayList<>(List.of(
+                new Dependency("org.springframework.boot", "spring-boot-starter-validation"),
+                new Dependency("org.springframework.boot", "spring-boot-starter-web"),
+                new Dependency("org.projectlombok", "lombok"),
+                new Dependency("org.springdoc", "springdoc-openapi-starter-webmvc-ui", "2.5.0", null),
+                new Dependency("org.springframework.boot", "spring-boot-starter-test", null, "test")));
+        if (options.contains("cache")) {
+            dependencies.add(new Dependency("org.springframework.boot", "spring-boot-starter-cache"));
+            dependencies.add(new Dependency("com.github.ben-manes.caffeine", "caffeine"));
+        }
+        // The query count tests of the entity graphs and the export tests run on an embedded database
+        if (options.contains("fetch") || options.contains("export")) dependencies.add(new Dependency("com.h2database", "h2", null, "test"));
+        if (options.contains("reactive")) {
+            dependencies.replaceAll(dependency -> WEBFLUX.containsKey(dependency.artifactId())
+                    ? new Dependency(dependency.groupId(), WEBFLUX.get(dependency.artifactId()), dependency.version(), dependency.scope()) : dependency);
+            dependencies.add(new Dependency("io.projectreactor", "reactor-test", null, "test"));
+            // The starter of the reactive repositories, R2DBC still needs the driver of the database
+            if (jpa) dependencies.add(new Dependency("org.springframework.boot", "spring-boot-starter-data-r2dbc"));
+            if (mongo) dependencies.add(new Dependency("org.springframework.boot", "spring-boot-starter-data-mongodb-reactive"));
+        }
+        // Actuator for the meter registry, the aspect that records @Timed and the Prometheus endpoint
+        if (options.contains("metrics")) {
+            dependencies.add(new Dependency("org.springframework.boot", "spring-boot-starter-actuator"));
+            dependencies.add(new Dependency("org.springframework.boot", "spring-boot-starter-aop"));
+            dependencies.add(new Dependency("io.micrometer", "micrometer-registry-prometheus", null, "runtime"));
+        }
+        // Applies the index migration of the JPA models at startup, Mongo models get their indexes from a config class
+        if (options.contains("indexes") && jpa) dependencies.add(new Dependency("org.flywaydb", "flyway-core"));
+        return dependencies;
+    }
+
+    // spring.threads.virtual.enabled needs Spring Boot 3.2 and virtual threads need Java 21. Like the script, a pom
+    // without a parent version or a java.version is not checked
+    private static void checkVirtualThreads(Path pom, String xml) {
+        int parent = xml.indexOf("<parent>");
+        int parentEnd = parent >= 0 ? xml.indexOf("</parent>", parent) : -1;
+        String boot = parentEnd >= 0 ? element(xml.substring(parent, parentEnd), "version") : null;
+        if (boot != null) {
+            String[] version = boot.split("\\.");
+            boolean supported = version.length >= 2 && version[0].matches("\\d+") && version[1].matches("\\d+")
+                    && (Integer.parseInt(version[0]) > 3 || Integer.parseInt(version[0]) == 3 && Integer.parseInt(version[1]) >= 2);
+            if (!supported) throw new GenerationException("Virtual threads need Spring Boot 3.2 or later, " + pom + " uses " + boot);
+        }
+        String java = element(xml, "java.version");
+        if (java != null && java.matches("\\d+") && Integer.parseInt(java) < 21) {
+            throw new GenerationException("Virtual threads need Java 21 or later, " + pom + " uses " + java);
+        }
+    }
+
+    private static String element(String xml, String name) {
+        int start = xml.indexOf("<" + name + ">");
+        int end = start >= 0 ? xml.indexOf("</" + name + ">", start) : -1;
+        return end >= 0 ? xml.substring(start + name.length() + 2, end).strip() : null;
+    }
+
+    // Start of the <dependencies> of the project, not the ones of dependencyManagement, a plugin or a profile
+    private static int projectDependencies(String xml) {
+        for (int start = xml.indexOf("<dependencies>"); start >= 0; start = xml.indexOf("<dependencies>", start + 1)) {
+            if (!inside(xml, start, "dependencyManagement") && !inside(xml, start, "build") && !inside(xml, start, "profiles")) return start;
+        }
+        return -1;
+    }
+
+    private static boolean inside(String xml, int index, String tag) {
+        int open = xml.lastIndexOf("<" + tag + ">", index);
+        return open >= 0 && xml.indexOf("</" + tag + ">", open) > index;
+    }
+
+    private static void appendDependency(StringBuilder out, Dependency dependency, String indent, String newline) {
+        out.append(indent).append("<dependency>").append(newline);
+        out.append(indent).append("    <groupId>").append(dependency.groupId()).append("</groupId>").append(newline);
+        out.append(indent).append("    <artifactId>").append(dependency.artifactId()).append("</artifactId>").append(newline);
+        if (dependency.version() != null) out.append(indent).append("    <version>").append(dependency.version()).append("</version>").append(newline);
+        if (dependency.scope() != null) out.append(indent).append("    <scope>").append(dependency.scope()).append("</scope>").append(newline);
+        out.append(indent).append("</dependency>").append(newline);
+    }
+}
@@ -0,0 +1,150 @@
+import java.nio.file.Path;
+import java.util.List;
+
+public class DtoGenerator {
+
+    public static void generateRequest(ModuleLayout layout, ModelDescriptor model) {
+        String modelName = model.modelName();
+        Path requestFile = layout.dtoRequest(modelName);
+
+        StringBuilder out = new StringBuilder(1024);
+        out.append("package ").append(layout.packageOf(requestFile.getParent())).append(";\n");
+        out.append("\n");
+        out.append("import jakarta.validation.constraints.NotBlank;\n");
+        out.append("import jakarta.validation.constraints.NotNull;\n");
+        out.append("import jakarta.validation.constraints.Positive;\n");
+        out.append("import lombok.Data;\n");
+        out.append("import lombok.AllArgsConstructor;\n");
+        out.append("import lombok.NoArgsConstructor;\n");
+        out.append("\n");
+        if (model.usesBigDecimal()) out.append("import java.math.BigDecimal;\n");
+        if (model.declaresDate()) out.append("import java.util.Date;\n");
+        out.append("\n");
+
+        out.append("@AllArgsConstructor\n");
+        out.append("@NoArgsConstructor\n");
+        out.append("@Data\n");
+        out.append("public class ").append(modelName).append("DtoRequest {\n");
+
+        // Id and LocalDateTime fields are not part of the request
+        for (JavaSource.Field field : model.fields()) {
+            if (field.line().contains("id") || field.line().contains("LocalDateTime")) continue;
+            String fieldType = field.type();
+            String fieldName = field.name();
+            String upperFieldName = Names.humanize(fieldName);
+
+            switch (fieldType) {
+                case "String", "Long", "Integer", "BigDecimal", "Double" -> out.append("\n");
+                default -> {
+                    if (!Names.isCollection(fieldType)) {
+                        out.append("\n");
+                        fieldName = Names.stripSuffix(fieldName, "Model");
+                        ModelDescriptor relation = relation(layout, field);
+                        String idType = relation != null ? relation.idType() : "";
+                        if (!idType.isEmpty()) {
+                            fieldType = idType;
+                            fieldName = fieldName + "Id";
+                        } else {
+                            fieldType = "String";
+                        }
+                    }
+                }
+            }
+
+            switch (fieldType) {
+                case "String" -> {
+                    out.append("    @NotNull(message = \"").append(upperFieldName).append(" cannot be null\")\n");
+                    out.append("    @NotBlank(message = \"").append(upperFieldName).append(" cannot be blank\")\n");
+                }
+                case "Long", "Integer", "BigDecimal", "Double" -> {
+                    out.append("    @Positive(message = \"").append(upperFieldName).append(" must be a positive number\")\n");
+                    out.append("    @NotNull(message = \"").append(upperFieldName).append(" cannot be null\")\n");
+                }
+                default -> {
+                }
+            }
+
+            if (!Names.isCollection(fieldType)) {
+                out.append("    private ").append(fieldType).append(" ").append(fieldName).append(";\n");
+            }
+        }
+
+        out.append("}\n");
+        Output.write(requestFile, out);
+    }
+
+    // Fields of the response when the repository can select it directly: every field is a field of the model with the same
+    // type, so nested responses of relations and renamed fields keep the entity mapping. Null when projections are off or reactive
+    public static List<JavaSource.Field> projection(ModuleLayout layout, ModelDescriptor model) {
+        if (GeneratorOptions.reactive() || !GeneratorOptions.projections() || model.flavor() == ModelDescriptor.Flavor.UNKNOWN) return null;
+        Path responseFile = layout.dtoResponse(model.modelName());
+        if (!Manifest.exists(responseFile)) return null;
+        List<JavaSource.Field> fields = JavaSource.read(responseFile).fields();
+        boolean hasId = false;
+        for (JavaSource.Field field : fields) {
+            if (model.fields().stream().noneMatch(modelField -> modelField.name().equals(field.name()) && modelField.type().equals(field.type()))) {
+                return null;
+            }
+            hasId |= field.name().equals(model.idName());
+        }
+        return hasId ? fields : null;
+    }
+
+    // Model a field points to like the scripts' check for $MODELS_DIR/$field_type.java, null for values and collections
+    public static ModelDescriptor relation(ModuleLayout layout, JavaSource.Field field) {
+        return Names.isCollection(field.type()) ? null : layout.model(field.type());
+    }
+
+    public static void generateResponse(ModuleLayout layout, ModelDescriptor model) {
+        String modelName = model.modelName();
+        Path responseFile = layout.dtoResponse(modelName);
+
+        StringBuilder body = new StringBuilder(1024);
+        boolean jsonFormat = false;
+        for (JavaSource.Field field : model.fields()) {
+            String fieldType = field.type();
+            String fieldName = field.name();
+            if (!Names.isCollection(fieldType)) body.append("\n");
+
+            switch (fieldType) {
+                case "String", "Long", "Integer", "BigDecimal", "Double", "LocalDateTime" -> {
+                    if (fieldType.equals("LocalDateTime")) {
+                        jsonFormat = true;
+                        body.append("    @JsonFormat(pattern = \"yyyy-MM-dd'T'HH:mm:ss\")\n");
+                    }
+                }
+                default -> {
+                    if (!Names.isCollection(fieldType)) {
+                        fieldName = Names.stripSuffix(fieldName, "Model");
+                        if (relation(layout, field) != null) {
+                            fieldType = Names.stripSuffix(fieldType, "Model") + "DtoResponse";
+                        }
+                    }
+                }
+            }
+
+            if (!Names.isCollection(fieldType)) {
+                body.append("    private ").append(fieldType).append(" ").append(fieldName).append(";\n");
+            }
+        }
+
+        StringBuilder out = new StringBuilder(body.length() + 512);
+        out.append("package ").append(layout.packageOf(responseFile.getParent())).append(";\n");
+        out.append("\n");
+        if (jsonFormat) out.append("import com.fasterxml.jackson.annotation.JsonFormat;\n");
+        out.append("import lombok.Data;\n");
+        out.append("import lombok.AllArgsConstructor;\n");
+        out.append("import lombok.NoArgsConstructor;\n");
+        out.append("\n");
+        if (model.declaresLocalDateTime()) out.append("import java.time.LocalDateTime;\n");
+        if (model.usesBigDecimal()) out.append("import java.math.BigDecimal;\n");
+        out.append("\n");
+        out.append("@AllArgsConstructor\n");
+        out.append("@NoArgsConstructor\n");
+        out.append("@Data\n");
+        out.append("public class ").append(modelName).append("DtoResponse {\n");
+        out.append(body);
+        out.append("}\n");
+        Output.write(responseFile, out);
+    }
+}
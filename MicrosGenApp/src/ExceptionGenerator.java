@@ -0,0 +1,25 @@
+import java.nio.file.Path;
+import java.util.Map;
+
+public class ExceptionGenerator {
+    private static final String[] EXCEPTION_CLASSES = {"ExceptionPayload", "EntityNotFoundException", "GlobalExceptionHandler"};
+
+    public static void generate(ModuleLayout layout) {
+        Path exceptionDir = layout.baseDir().resolve("exception");
+        String packageName = layout.packageOf(exceptionDir);
+        for (String exceptionClass : EXCEPTION_CLASSES) {
+            StringBuilder out = new StringBuilder("package ").append(packageName).append(";\n");
+            Templates.get("main/exception/" + exceptionClass).render(out, Map.of());
+            if (exceptionClass.equals("GlobalExceptionHandler") && GeneratorOptions.reactive()) {
+                // WebFlux reports invalid request bodies with its own exception, it has the same binding result
+                Templates.rewrite(out, "import", "@RestControllerAdvice", Map.of(
+                        "import org.springframework.web.bind.MethodArgumentNotValidException;\n", "",
+                        "import org.springframework.web.bind.annotation.RestControllerAdvice;\n",
+                        "import org.springframework.web.bind.annotation.RestControllerAdvice;\nimport org.springframework.web.bind.support.WebExchangeBindException;\n"));
+                Templates.rewrite(out, "@RestControllerAdvice", "    @ExceptionHandler(EntityNotFoundException.class)", Map.of(
+                        "MethodArgumentNotValidException", "WebExchangeBindException"));
+            }
+            Output.write(exceptionDir.resolve(exceptionClass + ".java"), out);
+        }
+    }
+}
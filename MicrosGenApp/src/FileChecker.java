@@ -1,114 +1,171 @@
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
 
 public class FileChecker {
-    public static void createTempFiles() {
-        String tempDirPath = System.getProperty("java.io.tmpdir");
-        String microgenScriptsDirPath = tempDirPath + File.separator + "microgen_scripts";
-
-        File microgenScriptsDir = new File(microgenScriptsDirPath);
-        microgenScriptsDir.mkdirs();
-
-        copyResourcesToDir("resources/scripts", microgenScriptsDirPath);
-        copyStaticToDir("resources/static_files", microgenScriptsDirPath+File.separator+"static");
-    }
-
-    private static void copyResourcesToDir(String resourcePath, String destDirPath) {
-        try {
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            CodeSource codeSource = FileChecker.class.getProtectionDomain().getCodeSource();
-            URL jarUrl = codeSource.getLocation();
-            String jarPath = jarUrl.toURI().getPath();
-            // Decode URL if it's URL-encoded
-            jarPath = URLDecoder.decode(jarPath, StandardCharsets.UTF_8);
-            // Extract the directory containing the JAR file
-            JarFile jarFile = new JarFile(jarPath);
-            Enumeration<JarEntry> entries = jarFile.entries();
-
-            // Process each entry in the JAR file
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String entryName = entry.getName();
-
-                // Check if the entry belongs to the specified resource path
-                if (entryName.startsWith(resourcePath) && !entryName.equals(resourcePath + "/")) {
-                    // Extract the filename from the entry
-                    String fileName = entryName.substring(resourcePath.length() + 1);
-
-                    // Create streams for reading from the JAR and writing to the destination directory
-                    InputStream inputStream = jarFile.getInputStream(entry);
-                    File outputFile = new File(destDirPath + File.separator + fileName);
-                    OutputStream outputStream = new FileOutputStream(outputFile);
-
-                    // Copy data from the input stream to the output stream
-                    while ((bytesRead = inputStream.read(buffer)) != -1) {
-                        outputStream.write(buffer, 0, bytesRead);
-                    }
+    // Written after a complete extraction, holds the jar version and the checksum of the extracted entries
+    private static final String STAMP_FILE = ".extracted";
 
-                    // Close streams
-                    inputStream.close();
-                    outputStream.close();
-                }
-            }
+    // Jar resource directory and where its files go inside microgen_scripts
+    private static final String[][] RESOURCE_DIRS = {{"resources/scripts", ""}, {"resources/static_files", "static"}};
+
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+
+    // One file to extract, fingerprint is the entry CRC in a jar and the modification time otherwise
+    private record Resource(String target, long size, long fingerprint, Source source) {
+    }
+
+    private static CompletableFuture<Void> extraction;
+
+    // Settings and run logs live in microgen_scripts even when nothing is extracted
+    public static void createScriptsDir() {
+        new File(scriptsDirPath()).mkdirs();
+    }
 
-            // Close the JAR file
-            jarFile.close();
+    // Starts the extraction on a background thread, only the first call of a launch does any work
+    public static synchronized CompletableFuture<Void> createTempFilesAsync() {
+        if (extraction == null) {
+            createScriptsDir();
+            extraction = CompletableFuture.runAsync(FileChecker::createTempFiles);
+        }
+        return extraction;
+    }
+
+    // Blocks until the scripts and static files are on disk
+    public static void awaitTempFiles() {
+        createTempFilesAsync().join();
+    }
+
+    public static synchronized boolean isExtracted() {
+        return extraction != null && extraction.isDone() && !extraction.isCompletedExceptionally();
+    }
 
-            System.out.println("Scripts are ready.");
+    public static void createTempFiles() {
+        long start = System.nanoTime();
+        Path scriptsDir = Path.of(scriptsDirPath());
+        try (JarFile jarFile = openJar()) {
+            List<Resource> resources = jarFile != null ? jarResources(jarFile) : directoryResources();
+            String stamp = version(jarFile) + " " + checksum(resources);
+            Path stampFile = scriptsDir.resolve(STAMP_FILE);
+
+            if (isCurrent(scriptsDir, stampFile, stamp, resources)) {
+                System.out.println("Scripts are ready (cached " + stamp + ") in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+                return;
+            }
+            Files.deleteIfExists(stampFile);
+            for (Resource resource : resources) {
+                Path target = scriptsDir.resolve(resource.target());
+                Files.createDirectories(target.getParent());
+                try (InputStream inputStream = resource.source().open()) {
+                    Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.writeString(stampFile, stamp, StandardCharsets.UTF_8);
+            System.out.println("Scripts are ready (extracted " + resources.size() + " files) in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private static void copyStaticToDir(String resourcePath, String destDirPath) {
-        try {
-            byte[] buffer = new byte[1024];
-            CodeSource codeSource = FileChecker.class.getProtectionDomain().getCodeSource();
-            URL jarUrl = codeSource.getLocation();
-            String jarPath = jarUrl.toURI().getPath();
-            // Decode URL if it's URL-encoded
-            jarPath = URLDecoder.decode(jarPath, StandardCharsets.UTF_8);
-            // Extract the directory containing the JAR file
-            JarFile jarFile = new JarFile(jarPath);
-            Enumeration<JarEntry> entries = jarFile.entries();
-
-            // Process each entry in the JAR file
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String entryName = entry.getName();
-                if (entryName.startsWith(resourcePath) && !entryName.equals(resourcePath + "/")) {
-                    String relativePath = entryName.substring(resourcePath.length());
-                    File outputFile = new File(destDirPath + File.separator + relativePath);
-                    if (entry.isDirectory()) {
-                        outputFile.mkdirs();
-                    } else {
-                        InputStream inputStream = jarFile.getInputStream(entry);
-                        OutputStream outputStream = new FileOutputStream(outputFile);
+    private static String scriptsDirPath() {
+        return System.getProperty("java.io.tmpdir") + File.separator + "microgen_scripts";
+    }
+
+    // Same stamp and every file still there with its size, temp cleaners may remove single files
+    private static boolean isCurrent(Path scriptsDir, Path stampFile, String stamp, List<Resource> resources) throws IOException {
+        if (!Files.isRegularFile(stampFile) || !Files.readString(stampFile, StandardCharsets.UTF_8).equals(stamp)) return false;
+        for (Resource resource : resources) {
+            Path target = scriptsDir.resolve(resource.target());
+            if (!Files.isRegularFile(target) || Files.size(target) != resource.size()) return false;
+        }
+        return true;
+    }
 
-                        int bytesRead;
-                        while ((bytesRead = inputStream.read(buffer)) != -1) {
-                            outputStream.write(buffer, 0, bytesRead);
-                        }
+    // Null when the app runs from a classes directory, e.g. from the IDE
+    private static JarFile openJar() throws Exception {
+        CodeSource codeSource = FileChecker.class.getProtectionDomain().getCodeSource();
+        URL jarUrl = codeSource.getLocation();
+        // Decode URL if it's URL-encoded
+        String jarPath = URLDecoder.decode(jarUrl.toURI().getPath(), StandardCharsets.UTF_8);
+        return new File(jarPath).isFile() ? new JarFile(jarPath) : null;
+    }
 
-                        inputStream.close();
-                        outputStream.close();
-                    }
+    private static List<Resource> jarResources(JarFile jarFile) {
+        List<Resource> resources = new ArrayList<>();
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (entry.isDirectory()) continue;
+            for (String[] resourceDir : RESOURCE_DIRS) {
+                if (entry.getName().startsWith(resourceDir[0] + "/")) {
+                    String target = target(resourceDir[1], entry.getName().substring(resourceDir[0].length() + 1));
+                    resources.add(new Resource(target, entry.getSize(), entry.getCrc(), () -> jarFile.getInputStream(entry)));
+                }
+            }
+        }
+        return resources;
+    }
+
+    private static List<Resource> directoryResources() throws Exception {
+        Path classes = Path.of(FileChecker.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<Resource> resources = new ArrayList<>();
+        for (String[] resourceDir : RESOURCE_DIRS) {
+            Path root = classes.resolve(resourceDir[0]);
+            if (!Files.isDirectory(root)) continue;
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                    String target = target(resourceDir[1], root.relativize(path).toString().replace(File.separatorChar, '/'));
+                    resources.add(new Resource(target, Files.size(path), Files.getLastModifiedTime(path).toMillis(), () -> Files.newInputStream(path)));
                 }
             }
-            jarFile.close();
-        }catch (Exception e){
-            e.printStackTrace();
         }
+        return resources;
+    }
+
+    private static String target(String directory, String name) {
+        return directory.isEmpty() ? name : directory + "/" + name;
+    }
+
+    // Implementation-Version of the running jar, "dev" outside of a jar
+    public static String appVersion() {
+        try (JarFile jarFile = openJar()) {
+            return version(jarFile);
+        } catch (Exception e) {
+            return "dev";
+        }
+    }
+
+    private static String version(JarFile jarFile) throws IOException {
+        Manifest manifest = jarFile != null ? jarFile.getManifest() : null;
+        String version = manifest != null ? manifest.getMainAttributes().getValue("Implementation-Version") : null;
+        return version != null ? version : "dev";
+    }
+
+    private static String checksum(List<Resource> resources) {
+        StringBuilder entries = new StringBuilder();
+        resources.stream()
+                .sorted(Comparator.comparing(Resource::target))
+                .forEach(resource -> entries.append(resource.target()).append(':').append(resource.size())
+                        .append(':').append(resource.fingerprint()).append('\n'));
+        return Hashes.sha256(entries.toString().getBytes(StandardCharsets.UTF_8));
     }
 
     public static boolean deleteTempDirectory(String directoryPath) {
@@ -6,5 +6,7 @@ public enum GenerateAction {
     EXCEPTION,
     CONTROLLER,
     SERVICE,
-    REPOSITORY
+    REPOSITORY,
+    // Every stage above, each one as soon as the stages it depends on are done
+    PIPELINE
 }
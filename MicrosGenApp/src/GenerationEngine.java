@@ -0,0 +1,276 @@
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Generates the same files as the bash scripts without starting any process
+public class GenerationEngine {
+    // Models generated at the same time, each model only writes its own files
+    public static volatile int threads = Runtime.getRuntime().availableProcessors();
+    // Skip steps whose inputs did not change and never overwrite hand-edited outputs
+    public static volatile boolean incremental = true;
+
+    // One generator run for every model, or once for the module when perModel is null
+    private record Phase(String kind, Path directory, Consumer<ModelDescriptor> perModel, Runnable once) {
+    }
+
+    // State shared by the steps of one run. written holds the module relative path of every file the steps wrote,
+    // also for full runs that keep no manifest
+    private record Context(Manifest manifest, Consumer<ProgressEvent> listener, AtomicInteger done, int total,
+                           ExecutorService executor, RunMetrics metrics, Path moduleDir, ConcurrentLinkedQueue<String> written) {
+    }
+
+    public static GenerationReport run(GenerateAction action, String directory, String model) {
+        return run(action, directory, model, event -> {
+        });
+    }
+
+    // The listener is called from the worker threads
+    public static GenerationReport run(GenerateAction action, String directory, String model, Consumer<ProgressEvent> listener) {
+        return run(action, directory, model, listener, new RunMetrics(action.name(), directory));
+    }
+
+    // Fills the metrics while it runs, they are also complete when the run fails
+    public static GenerationReport run(GenerateAction action, String directory, String model, Consumer<ProgressEvent> listener, RunMetrics metrics) {
+        metrics.attach();
+        Manifest manifest = null;
+        ConcurrentLinkedQueue<String> written = new ConcurrentLinkedQueue<>();
+        try {
+            long mark = RunMetrics.mark();
+            ModuleLayout layout = ModuleLayout.resolve(directory);
+            Map<GenerateAction, List<Phase>> stages = new EnumMap<>(GenerateAction.class);
+            for (GenerateAction stage : action == GenerateAction.PIPELINE ? pipeline().keySet() : List.of(action)) {
+                stages.put(stage, plan(stage, layout));
+            }
+            List<ModelDescriptor> models = stages.values().stream().flatMap(List::stream).anyMatch(phase -> phase.perModel() != null)
+                    ? layout.models(model) : List.of();
+            int total = stages.values().stream().flatMap(List::stream)
+                    .mapToInt(phase -> phase.perModel() != null ? models.size() : 1).sum();
+            metrics.models(models.size());
+            RunMetrics.record(RunMetrics.Phase.DISCOVERY, mark);
+
+            // The pom is merged on every run, before the code that needs its dependencies. A pom the options cannot run on,
+            // like virtual threads on Spring Boot 3.1, fails the run before anything is generated
+            if (DependencyGenerator.enabled()) {
+                List<String> added = DependencyGenerator.generate(layout);
+                if (!added.isEmpty()) {
+                    written.add("pom.xml");
+                    listener.accept(ProgressEvent.output("pom.xml: added " + String.join(", ", added)));
+                }
+            }
+
+            mark = RunMetrics.mark();
+            Templates.compileAll();
+            RunMetrics.record(RunMetrics.Phase.TEMPLATES, mark);
+
+            manifest = incremental ? Manifest.load(layout.moduleDir()) : null;
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, models.size())))) {
+                Context context = new Context(manifest, listener, new AtomicInteger(), total, executor, metrics,
+                        layout.moduleDir().toAbsolutePath().normalize(), written);
+                if (action == GenerateAction.PIPELINE) {
+                    runPipeline(context, stages, models);
+                } else {
+                    runPhases(context, stages.get(action), models);
+                }
+            }
+        } finally {
+            try {
+                if (manifest != null) manifest.save();
+            } finally {
+                metrics.finish();
+            }
+        }
+        List<String> files = new ArrayList<>(written);
+        files.sort(null);
+        return manifest != null ? manifest.report(files) : new GenerationReport(files, List.of(), 0);
+    }
+
+    // Every phase finishes before the next one starts
+    private static void runPhases(Context context, List<Phase> phases, List<ModelDescriptor> models) {
+        for (Phase phase : phases) {
+            if (phase.directory() != null) Output.createDirectories(phase.directory());
+            if (phase.perModel() != null) {
+                forEachModel(context, phase, models);
+            } else {
+                step(context, phase.kind(), null, phase.once());
+            }
+        }
+    }
+
+    // Starts every stage as soon as the stages it reads are done, independent stages share the model threads.
+    // A failed stage skips the stages that depend on it, the others still run
+    private static void runPipeline(Context context, Map<GenerateAction, List<Phase>> stages, List<ModelDescriptor> models) {
+        Map<GenerateAction, List<GenerateAction>> pipeline = pipeline();
+        Map<GenerateAction, CompletableFuture<Void>> running = new EnumMap<>(GenerateAction.class);
+        try (ExecutorService stageExecutor = Executors.newCachedThreadPool()) {
+            for (GenerateAction stage : pipeline.keySet()) {
+                CompletableFuture<?>[] dependencies = pipeline.get(stage).stream().map(running::get).toArray(CompletableFuture[]::new);
+                running.put(stage, CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        runPhases(context, stages.get(stage), models);
+                    } catch (RuntimeException e) {
+                        context.listener().accept(ProgressEvent.output("Stage " + stage + " failed"));
+                        throw e;
+                    }
+                    context.listener().accept(ProgressEvent.output("Stage " + stage + " done in " + (System.nanoTime() - start) / 1_000_000 + " ms"));
+                }, stageExecutor));
+            }
+            CompletableFuture.allOf(running.values().toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        }
+
+        List<String> messages = new ArrayList<>();
+        List<RuntimeException> failures = new ArrayList<>();
+        for (GenerateAction stage : pipeline.keySet()) {
+            CompletableFuture<Void> result = running.get(stage);
+            if (!result.isCompletedExceptionally()) continue;
+            List<GenerateAction> failedDependencies = pipeline.get(stage).stream()
+                    .filter(dependency -> running.get(dependency).isCompletedExceptionally()).toList();
+            if (!failedDependencies.isEmpty()) {
+                messages.add(stage + ": skipped, needs " + failedDependencies.get(0));
+                continue;
+            }
+            RuntimeException failure = cause(result);
+            messages.add(stage + ": " + failure.getMessage().replace("\n", "\n  "));
+            failures.add(failure);
+        }
+        if (!failures.isEmpty()) {
+            GenerationException exception = new GenerationException(String.join("\n", messages), failures.get(0));
+            failures.forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    private static RuntimeException cause(CompletableFuture<Void> result) {
+        try {
+            result.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof RuntimeException cause ? cause : new GenerationException(e.getCause().toString(), e.getCause());
+        }
+    }
+
+    // What each pipeline stage reads from the others, in an order that runs every stage after its dependencies.
+    // Built per run, some edges only exist for the options that need them
+    public static Map<GenerateAction, List<GenerateAction>> pipeline() {
+        Map<GenerateAction, List<GenerateAction>> stages = new LinkedHashMap<>();
+        stages.put(GenerateAction.DTO, List.of());
+        stages.put(GenerateAction.EXCEPTION, List.of());
+        // Mappers copy the DTO fields, services take their relations from the mappers
+        stages.put(GenerateAction.MAPPER, List.of(GenerateAction.DTO));
+        // Repositories only read the response DTOs when they select projections, and the relations of the mappers when
+        // they count the related entities of reference writes
+        List<GenerateAction> repository = new ArrayList<>();
+        if (GeneratorOptions.projections()) repository.add(GenerateAction.DTO);
+        if (GeneratorOptions.references()) repository.add(GenerateAction.MAPPER);
+        stages.put(GenerateAction.REPOSITORY, List.copyOf(repository));
+        stages.put(GenerateAction.SERVICE, List.of(GenerateAction.MAPPER));
+        // Controllers are only generated for models that have both DTOs, the export endpoint needs the exportAll of the service
+        stages.put(GenerateAction.CONTROLLER, List.of(GenerateAction.DTO, GenerateAction.SERVICE));
+        // Tests read the DTOs, the repository, the service and the controller of their model
+        stages.put(GenerateAction.TEST, List.of(GenerateAction.REPOSITORY, GenerateAction.SERVICE, GenerateAction.CONTROLLER));
+        return Collections.unmodifiableMap(stages);
+    }
+
+    // Steps of one action in the order of the scripts
+    private static List<Phase> plan(GenerateAction action, ModuleLayout layout) {
+        Phase exceptions = new Phase("exception", null, null, () -> ExceptionGenerator.generate(layout));
+        Phase repositories = new Phase("repository", RepositoryGenerator.directory(layout), model -> RepositoryGenerator.generate(layout, model), null);
+        Phase indexes = new Phase("indexes", null, null, () -> IndexGenerator.generate(layout));
+        Phase cacheConfig = new Phase("cache-config", null, null, () -> ConfigGenerator.generateCacheConfig(layout));
+        Phase batchConfig = new Phase("batch-config", null, null, () -> ConfigGenerator.generateBatchConfig(layout));
+        Phase metricsConfig = new Phase("metrics-config", null, null, () -> ConfigGenerator.generateMetricsConfig(layout));
+        Phase virtualThreads = new Phase("virtual-threads", null, null, () -> ConfigGenerator.generateVirtualThreadProfile(layout));
+        Phase services = new Phase("service", ServiceGenerator.directory(layout), model -> ServiceGenerator.generate(layout, model), null);
+        Phase cursorPage = new Phase("cursor-page", null, null, () -> ControllerGenerator.generateCursorPage(layout));
+        Phase controllers = new Phase("controller", ControllerGenerator.directory(layout), model -> ControllerGenerator.generate(layout, model), null);
+        return switch (action) {
+            case DTO -> List.of(
+                    new Phase("dto-request", null, model -> DtoGenerator.generateRequest(layout, model), null),
+                    new Phase("dto-response", null, model -> DtoGenerator.generateResponse(layout, model), null));
+            case MAPPER -> List.of(new Phase("mapper", null, model -> MapperGenerator.generate(layout, model), null));
+            case EXCEPTION -> List.of(exceptions);
+            case REPOSITORY -> List.of(repositories, indexes);
+            case SERVICE -> List.of(cacheConfig, batchConfig, metricsConfig, virtualThreads, services);
+            case CONTROLLER -> List.of(cursorPage, controllers);
+            case FULL_SERVICE -> List.of(repositories, indexes, exceptions, cacheConfig, batchConfig, metricsConfig, virtualThreads, services, cursorPage, controllers);
+            case PIPELINE -> throw new IllegalArgumentException("The pipeline is planned stage by stage");
+            case TEST -> List.of(
+                    new Phase("test-static-object", TestGenerator.staticObjectDirectory(layout), model -> TestGenerator.generateStaticObject(layout, model), null),
+                    new Phase("test-service", TestGenerator.serviceDirectory(layout), model -> TestGenerator.generateServiceTest(layout, model), null),
+                    new Phase("test-controller", TestGenerator.controllerDirectory(layout), model -> TestGenerator.generateControllerTest(layout, model), null),
+                    new Phase("test-service-logging", null, model -> TestGenerator.generateServiceLoggingTest(layout, model), null),
+                    new Phase("test-service-metrics", null, model -> TestGenerator.generateServiceMetricsTest(layout, model), null),
+                    new Phase("test-controller-concurrency", null, model -> TestGenerator.generateControllerConcurrencyTest(layout, model), null),
+                    new Phase("test-service-cache", null, model -> TestGenerator.generateServiceCacheTest(layout, model), null),
+                    new Phase("test-repository-fetch", null, model -> TestGenerator.generateRepositoryFetchTest(layout, model), null),
+                    new Phase("test-service-export", null, model -> TestGenerator.generateServiceExportTest(layout, model), null));
+        };
+    }
+
+    private static void step(Context context, String kind, ModelDescriptor model, Runnable generator) {
+        String modelName = model != null ? model.className() : null;
+        String id = model != null ? kind + ":" + modelName : kind;
+        context.listener().accept(new ProgressEvent(ProgressEvent.Type.STARTED, modelName, kind, null, context.done().get(), context.total()));
+        Output.listen(file -> {
+            context.written().add(context.moduleDir().relativize(file.toAbsolutePath().normalize()).toString().replace(File.separatorChar, '/'));
+            context.listener().accept(
+                    new ProgressEvent(ProgressEvent.Type.WRITTEN, modelName, kind, file.getFileName().toString(), context.done().get(), context.total()));
+        });
+        RunMetrics.Step timing = context.metrics().step(kind, modelName);
+        try {
+            if (context.manifest() != null) {
+                context.manifest().step(id, model, generator);
+            } else {
+                generator.run();
+            }
+        } catch (RuntimeException e) {
+            context.listener().accept(new ProgressEvent(ProgressEvent.Type.FAILED, modelName, kind, e.getMessage(), context.done().incrementAndGet(), context.total()));
+            throw e;
+        } finally {
+            timing.close();
+            Output.listen(null);
+        }
+        context.listener().accept(new ProgressEvent(ProgressEvent.Type.DONE, modelName, kind, null, context.done().incrementAndGet(), context.total()));
+    }
+
+    // Runs one phase for every model, waits for all of them and reports each failed model
+    private static void forEachModel(Context context, Phase phase, List<ModelDescriptor> models) {
+        if (models.size() == 1) {
+            ModelDescriptor model = models.get(0);
+            step(context, phase.kind(), model, () -> phase.perModel().accept(model));
+            return;
+        }
+        List<Future<?>> results = new ArrayList<>();
+        for (ModelDescriptor model : models) {
+            results.add(context.executor().submit(() -> step(context, phase.kind(), model, () -> phase.perModel().accept(model))));
+        }
+
+        Map<String, RuntimeException> failures = new LinkedHashMap<>();
+        for (int i = 0; i < models.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (ExecutionException e) {
+                failures.put(models.get(i).className(), e.getCause() instanceof RuntimeException cause
+                        ? cause : new GenerationException(e.getCause().toString(), e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GenerationException("Generation interrupted", e);
+            }
+        }
+        if (!failures.isEmpty()) throw new ModelFailures(failures);
+    }
+}
@@ -0,0 +1,11 @@
+public class GenerationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public GenerationException(String message) {
+        super(message);
+    }
+
+    public GenerationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
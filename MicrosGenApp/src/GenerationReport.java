@@ -0,0 +1,10 @@
+import java.util.List;
+
+// What a run wrote, which hand-edited outputs it left alone and how many steps were already up to date
+public record GenerationReport(List<String> written, List<String> edited, int upToDate) {
+
+    public GenerationReport {
+        written = List.copyOf(written);
+        edited = List.copyOf(edited);
+    }
+}
@@ -0,0 +1,138 @@
+// Switches for the generated code, set from the settings or the command line.
+// Generators read them through the methods so the manifest reruns a step when a switch changes
+public class GeneratorOptions {
+    public enum Pagination {
+        PAGE,
+        SLICE,
+        KEYSET
+    }
+
+    public enum Logging {
+        FULL,
+        IDS,
+        OFF
+    }
+
+    // Read-through Caffeine caching of getById in the services
+    public static volatile boolean cache;
+
+    // JPA services check that related entities exist and use reference proxies instead of loading them
+    public static volatile boolean references;
+
+    // Bulk create, update and delete endpoints persisted with saveAll and batched deletes
+    public static volatile boolean bulk;
+
+    // Read endpoints select the response DTO straight from the database instead of loading and mapping the entity
+    public static volatile boolean projections;
+
+    // JPA repositories load the relations the response reads with an entity graph instead of one query per row
+    public static volatile boolean fetchGraphs;
+
+    // Indexes for foreign keys, references and lookups without one, in a Flyway migration or a Mongo index config
+    public static volatile boolean indexes;
+
+    // Repositories, services and controllers use Reactor with R2DBC or reactive Mongo and WebFlux.
+    // The caching, reference, bulk, projection and entity graph options only apply to the blocking code
+    public static volatile boolean reactive;
+
+    // A Spring profile that serves the blocking code on virtual threads with right-sized connection pools,
+    // services load two or more related entities at the same time
+    public static volatile boolean virtualThreads;
+
+    // Micrometer timers on every service method, tagged by entity and operation, with histograms for the reads
+    public static volatile boolean metrics;
+
+    // A streaming export endpoint that writes every row as NDJSON or a JSON array while a repository stream reads it
+    public static volatile boolean export;
+
+    // What the services log: every call at INFO with whole entities, only ids at DEBUG behind a level check, or nothing
+    public static volatile Logging logging = Logging.FULL;
+
+    // How getAll pages: Page with a count query, Slice without one, or keyset on the id with an opaque cursor
+    public static volatile Pagination pagination = Pagination.PAGE;
+
+    // Add the base dependencies to the pom even when no option needs another starter. Not an input of the steps,
+    // the pom is merged on every run
+    public static volatile boolean dependencies;
+
+    public static boolean cache() {
+        Manifest.option("cache", Boolean.toString(cache));
+        return cache;
+    }
+
+    public static boolean references() {
+        Manifest.option("references", Boolean.toString(references));
+        return references;
+    }
+
+    public static boolean bulk() {
+        Manifest.option("bulk", Boolean.toString(bulk));
+        return bulk;
+    }
+
+    public static boolean projections() {
+        Manifest.option("projections", Boolean.toString(projections));
+        return projections;
+    }
+
+    public static boolean fetchGraphs() {
+        Manifest.option("fetchGraphs", Boolean.toString(fetchGraphs));
+        return fetchGraphs;
+    }
+
+    public static boolean indexes() {
+        Manifest.option("indexes", Boolean.toString(indexes));
+        return indexes;
+    }
+
+    public static boolean reactive() {
+        Manifest.option("reactive", Boolean.toString(reactive));
+        return reactive;
+    }
+
+    public static boolean virtualThreads() {
+        Manifest.option("virtualThreads", Boolean.toString(virtualThreads));
+        return virtualThreads;
+    }
+
+    public static boolean metrics() {
+        Manifest.option("metrics", Boolean.toString(metrics));
+        return metrics;
+    }
+
+    public static boolean export() {
+        Manifest.option("export", Boolean.toString(export));
+        return export;
+    }
+
+    public static Logging logging() {
+        Logging current = logging;
+        Manifest.option("logging", current.name());
+        return current;
+    }
+
+    public static Pagination pagination() {
+        Pagination current = pagination;
+        Manifest.option("pagination", current.name());
+        return current;
+    }
+
+    // Current value of an option recorded in a manifest, null when the option no longer exists
+    public static String value(String name) {
+        return switch (name) {
+            case "cache" -> Boolean.toString(cache);
+            case "references" -> Boolean.toString(references);
+            case "bulk" -> Boolean.toString(bulk);
+            case "projections" -> Boolean.toString(projections);
+            case "fetchGraphs" -> Boolean.toString(fetchGraphs);
+            case "indexes" -> Boolean.toString(indexes);
+            case "reactive" -> Boolean.toString(reactive);
+            case "virtualThreads" -> Boolean.toString(virtualThreads);
+            case "metrics" -> Boolean.toString(metrics);
+            case "export" -> Boolean.toString(export);
+            case "pagination" -> pagination.name();
+            case "logging" -> logging.name();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,138 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Indexes for the foreign keys, references and lookups the linter finds without one.
+// JPA modules get a new Flyway migration, Mongo modules a config/MongoIndexConfig that ensures the indexes at startup
+public class IndexGenerator {
+    private static final List<String> RULES = List.of("unindexed-foreign-key", "unindexed-reference", "unindexed-lookup");
+    private static final Pattern TABLE = Pattern.compile("@Table\\([^)]*name\\s*=\\s*\"([^\"]+)\"");
+    private static final Pattern VERSION = Pattern.compile("^V(\\d+)(?:[._]\\d+)*__.*\\.sql$");
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "create\\s+(?:unique\\s+)?index\\s+(?:concurrently\\s+)?(?:if\\s+not\\s+exists\\s+)?(\\S+)\\s+on\\s+(\\S+)\\s*(?:using\\s+\\w+\\s*)?\\(\\s*([^,\\s)]+)",
+            Pattern.CASE_INSENSITIVE);
+    // Longest identifier PostgreSQL keeps
+    private static final int MAX_NAME = 63;
+
+    private record Index(String table, String column) {
+    }
+
+    public static Path migrationDirectory(ModuleLayout layout) {
+        return layout.moduleDir().resolve("src/main/resources/db/migration");
+    }
+
+    public static void generate(ModuleLayout layout) {
+        if (!GeneratorOptions.indexes()) return;
+        List<ModelDescriptor> entities = new ArrayList<>();
+        List<ModelDescriptor> documents = new ArrayList<>();
+        for (ModelDescriptor model : layout.models(ModuleLayout.ALL_MODELS)) {
+            Manifest.read(model.path(), model.hash());
+            if (model.flavor() == ModelDescriptor.Flavor.JPA) entities.add(model);
+            if (model.flavor() == ModelDescriptor.Flavor.MONGO) documents.add(model);
+        }
+        if (!entities.isEmpty()) generateMigration(layout, entities);
+        if (!documents.isEmpty()) generateMongoIndexConfig(layout, documents);
+    }
+
+    // A new migration with the indexes no migration creates yet, existing migrations are never changed
+    // because Flyway validates their checksums
+    private static void generateMigration(ModuleLayout layout, List<ModelDescriptor> entities) {
+        Path directory = migrationDirectory(layout);
+        Set<String> existing = new HashSet<>();
+        int version = 0;
+        for (String name : Manifest.list(directory)) {
+            if (!name.toLowerCase(Locale.ROOT).endsWith(".sql")) continue;
+            Matcher matcher = VERSION.matcher(name);
+            if (matcher.matches()) version = Math.max(version, Integer.parseInt(matcher.group(1)));
+            Matcher index = CREATE_INDEX.matcher(String.join("\n", JavaSource.read(directory.resolve(name)).lines()));
+            while (index.find()) {
+                existing.add(identifier(index.group(1)));
+                existing.add(identifier(index.group(2)) + "." + identifier(index.group(3)));
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (ModelDescriptor model : entities) {
+            String table = table(model);
+            for (Index index : missing(layout, model, table)) {
+                String name = name(index);
+                if (!existing.add(identifier(index.table()) + "." + identifier(index.column())) || !existing.add(identifier(name))) continue;
+                out.append("CREATE INDEX ").append(name).append(" ON ").append(index.table())
+                        .append(" (").append(index.column()).append(");\n");
+            }
+        }
+        if (out.isEmpty()) return;
+        out.insert(0, "-- Indexes for foreign keys and lookups without one, generated by MicrosGen\n");
+        Output.write(directory.resolve("V" + (version + 1) + "__microsgen_indexes.sql"), out);
+    }
+
+    private static void generateMongoIndexConfig(ModuleLayout layout, List<ModelDescriptor> documents) {
+        List<String> ensures = new ArrayList<>();
+        Set<String> imports = new HashSet<>();
+        for (ModelDescriptor model : documents) {
+            for (Index index : missing(layout, model, model.className())) {
+                imports.add(model.className());
+                ensures.add("        mongoTemplate.indexOps(" + model.className() + ".class).ensureIndex(new Index().on(\""
+                        + index.column() + "\", Sort.Direction.ASC));\n");
+            }
+        }
+        if (ensures.isEmpty()) return;
+
+        Path configFile = ConfigGenerator.directory(layout).resolve("MongoIndexConfig.java");
+        String basePackage = layout.basePackage();
+        StringBuilder out = new StringBuilder("package ").append(layout.packageOf(configFile.getParent())).append(";\n\n");
+        imports.stream().sorted().forEach(className -> out.append("import ").append(basePackage).append(".model.").append(className).append(";\n"));
+        out.append("import org.springframework.boot.context.event.ApplicationReadyEvent;\n");
+        out.append("import org.springframework.context.annotation.Configuration;\n");
+        out.append("import org.springframework.context.event.EventListener;\n");
+        out.append("import org.springframework.data.domain.Sort;\n");
+        out.append("import org.springframework.data.mongodb.core.MongoTemplate;\n");
+        out.append("import org.springframework.data.mongodb.core.index.Index;\n\n");
+        out.append("// Indexes for references and lookups without @Indexed, ensureIndex does nothing when the index exists\n");
+        out.append("@Configuration\n");
+        out.append("public class MongoIndexConfig {\n");
+        out.append("    private final MongoTemplate mongoTemplate;\n\n");
+        out.append("    public MongoIndexConfig(MongoTemplate mongoTemplate) {\n");
+        out.append("        this.mongoTemplate = mongoTemplate;\n");
+        out.append("    }\n\n");
+        out.append("    @EventListener(ApplicationReadyEvent.class)\n");
+        out.append("    public void ensureIndexes() {\n");
+        ensures.forEach(out::append);
+        out.append("    }\n");
+        out.append("}\n");
+        Output.write(configFile, out);
+    }
+
+    // Indexes the linter asks for, without duplicates when a lookup and a foreign key share the column
+    private static List<Index> missing(ModuleLayout layout, ModelDescriptor model, String table) {
+        List<Index> indexes = new ArrayList<>();
+        for (ModelLinter.Finding finding : ModelLinter.lint(layout, model)) {
+            if (finding.index() == null || !RULES.contains(finding.rule())) continue;
+            Index index = new Index(table, finding.index());
+            if (!indexes.contains(index)) indexes.add(index);
+        }
+        return indexes;
+    }
+
+    // Table name Spring Boot gives an entity: @Table(name = ...) or the class name in snake case
+    private static String table(ModelDescriptor model) {
+        Matcher table = TABLE.matcher(model.classAnnotations());
+        return table.find() ? table.group(1) : Names.snake(model.className());
+    }
+
+    private static String name(Index index) {
+        String name = "idx_" + index.table() + "_" + index.column();
+        return name.length() > MAX_NAME ? name.substring(0, MAX_NAME) : name;
+    }
+
+    // 'public."Orders"' -> 'orders', to compare names written in other styles
+    private static String identifier(String name) {
+        String identifier = name.replace("\"", "").replace("`", "").toLowerCase(Locale.ROOT);
+        return identifier.substring(identifier.lastIndexOf('.') + 1);
+    }
+}
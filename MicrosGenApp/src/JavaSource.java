@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class JavaSource {
+    private static final Pattern FIELD_LINE = Pattern.compile("private .*;");
+    private static final Pattern FIELD_DECLARATION = Pattern.compile("private ([^ ]*) ([^;]*);");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // line is the declaration with "private" and ";" stripped, type and name are its first two words
+    public record Field(String line, String type, String name) {
+    }
+
+    private final Path path;
+    private final String content;
+    private final List<String> lines;
+
+    private JavaSource(Path path, String content) {
+        this.path = path;
+        this.content = content;
+        this.lines = content.lines().toList();
+    }
+
+    public static JavaSource read(Path path) {
+        try {
+            byte[] content = Files.readAllBytes(path);
+            Manifest.read(path, Hashes.sha256(content));
+            return new JavaSource(path, new String(content, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new GenerationException("Unable to read " + path.getFileName(), e);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public List<String> lines() {
+        return lines;
+    }
+
+    public boolean contains(String text) {
+        return content.contains(text);
+    }
+
+    // Every line matching 'private .*;', split the way the scripts do with sed and awk
+    public List<Field> fields() {
+        List<Field> fields = new ArrayList<>();
+        for (String line : lines) {
+            Field field = parseField(line);
+            if (field != null) fields.add(field);
+        }
+        return fields;
+    }
+
+    // Field declared on the line, or null when it does not match 'private .*;'
+    public static Field parseField(String line) {
+        if (!FIELD_LINE.matcher(line).find()) return null;
+        String stripped = FIELD_DECLARATION.matcher(line).replaceFirst("$1 $2");
+        String[] words = words(stripped);
+        return new Field(stripped, word(words, 0), word(words, 1));
+    }
+
+    public boolean hasField(Pattern declaration) {
+        for (String line : lines) {
+            if (declaration.matcher(line).find()) return true;
+        }
+        return false;
+    }
+
+    public List<String> matching(Pattern pattern) {
+        List<String> result = new ArrayList<>();
+        for (String line : lines) {
+            Matcher matcher = pattern.matcher(line);
+            if (matcher.find()) result.add(line);
+        }
+        return result;
+    }
+
+    public static String[] words(String line) {
+        String trimmed = line.strip();
+        return trimmed.isEmpty() ? new String[0] : WHITESPACE.split(trimmed);
+    }
+
+    public static String word(String[] words, int index) {
+        return index < words.length ? words[index] : "";
+    }
+}
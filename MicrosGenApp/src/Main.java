@@ -2,11 +2,20 @@ import javax.swing.*;
 
 public class Main {
     public static void main(String[] args) {
+        // 'generate' runs without the UI, for CI and batch use
+        if (args.length > 0 && args[0].equals("generate")) {
+            System.exit(Cli.run(args, System.out, System.err));
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            System.exit(Bench.run(args, System.out, System.err));
+        }
+
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
                 new Menu().setVisible(true);
+                RunMetrics.windowShown();
             }
         });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,254 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Hashes of what every generation step read and wrote, kept in <module>/.microsgen/manifest
+public class Manifest {
+    public static final String DIRECTORY = ".microsgen";
+    // Bump when the generators change their output, old steps are then rebuilt
+    private static final String HEADER = "# MicrosGen manifest 2";
+    private static final String TEMPLATE = "template:";
+    private static final String OPTION = "option:";
+    private static final String LISTING = "listing:";
+    private static final String PRESENT = "+";
+    private static final String ABSENT = "-";
+
+    private record Step(Map<String, String> inputs, Map<String, String> outputs) {
+    }
+
+    // Inputs and outputs of the step running on the current thread
+    private record Recorder(Manifest manifest, Map<String, String> inputs, Map<String, String> outputs) {
+    }
+
+    private static final ThreadLocal<Recorder> current = new ThreadLocal<>();
+
+    private final Path moduleDir;
+    private final Path file;
+    private final Map<String, Step> steps = new ConcurrentHashMap<>();
+    // Last generated hash of every output, used to tell hand edits apart
+    private final Map<String, String> generated = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> edited = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String> upToDate = new ConcurrentLinkedQueue<>();
+
+    private Manifest(Path moduleDir) {
+        this.moduleDir = moduleDir;
+        this.file = moduleDir.resolve(DIRECTORY).resolve("manifest");
+    }
+
+    public static Manifest load(Path moduleDir) {
+        Manifest manifest = new Manifest(moduleDir);
+        if (!Files.isRegularFile(manifest.file)) return manifest;
+        long mark = RunMetrics.mark();
+        try {
+            List<String> lines = Files.readAllLines(manifest.file, StandardCharsets.UTF_8);
+            boolean sameVersion = !lines.isEmpty() && lines.get(0).equals(HEADER);
+            Step step = null;
+            String id = null;
+            for (String line : lines) {
+                String[] columns = line.split("\t");
+                if (columns.length < 2 || line.startsWith("#")) continue;
+                switch (columns[0]) {
+                    case "step" -> {
+                        if (id != null && sameVersion) manifest.steps.put(id, step);
+                        id = columns[1];
+                        step = new Step(new TreeMap<>(), new TreeMap<>());
+                    }
+                    case "in" -> {
+                        if (step != null && columns.length == 3) step.inputs().put(columns[1], columns[2]);
+                    }
+                    case "out" -> {
+                        if (step != null && columns.length == 3) {
+                            step.outputs().put(columns[1], columns[2]);
+                            manifest.generated.put(columns[1], columns[2]);
+                        }
+                    }
+                }
+            }
+            if (id != null && sameVersion) manifest.steps.put(id, step);
+        } catch (IOException e) {
+            throw new GenerationException("Unable to read " + manifest.file, e);
+        } finally {
+            RunMetrics.record(RunMetrics.Phase.CHECKING, mark);
+        }
+        return manifest;
+    }
+
+    public void save() {
+        long mark = RunMetrics.mark();
+        StringBuilder out = new StringBuilder(HEADER).append("\n");
+        for (Map.Entry<String, Step> step : new TreeMap<>(steps).entrySet()) {
+            out.append("step\t").append(step.getKey()).append("\n");
+            step.getValue().inputs().forEach((key, hash) -> out.append("in\t").append(key).append("\t").append(hash).append("\n"));
+            step.getValue().outputs().forEach((key, hash) -> out.append("out\t").append(key).append("\t").append(hash).append("\n"));
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporary = file.resolveSibling("manifest.tmp");
+            Files.writeString(temporary, out, StandardCharsets.UTF_8);
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new GenerationException("Unable to write " + file, e);
+        } finally {
+            RunMetrics.record(RunMetrics.Phase.CHECKING, mark);
+        }
+    }
+
+    // Runs the generator unless everything it read and wrote last time is unchanged
+    public void step(String id, ModelDescriptor model, Runnable generator) {
+        Step previous = steps.get(id);
+        long mark = RunMetrics.mark();
+        boolean unchanged = previous != null && isUpToDate(previous);
+        RunMetrics.record(RunMetrics.Phase.CHECKING, mark);
+        if (unchanged) {
+            upToDate.add(id);
+            return;
+        }
+        Recorder recorder = new Recorder(this, new TreeMap<>(), new TreeMap<>());
+        if (model != null) recorder.inputs().put(key(model.path()), model.hash());
+        current.set(recorder);
+        try {
+            generator.run();
+            steps.put(id, new Step(recorder.inputs(), recorder.outputs()));
+        } catch (RuntimeException e) {
+            steps.remove(id);
+            throw e;
+        } finally {
+            current.remove();
+        }
+    }
+
+    // The engine records what was written, also for runs without a manifest
+    public GenerationReport report(List<String> written) {
+        return new GenerationReport(written, sorted(edited), upToDate.size());
+    }
+
+    // Files.exists that also records the check as an input of the running step
+    public static boolean exists(Path path) {
+        boolean exists = Files.exists(path);
+        Recorder recorder = current.get();
+        if (recorder != null) recorder.inputs().putIfAbsent(recorder.manifest().key(path), exists ? PRESENT : ABSENT);
+        return exists;
+    }
+
+    // Sorted file names of a directory, the listing is also an input of the running step
+    public static List<String> list(Path directory) {
+        List<String> names = names(directory);
+        Recorder recorder = current.get();
+        if (recorder != null) recorder.inputs().put(LISTING + recorder.manifest().key(directory), listingHash(names));
+        return names;
+    }
+
+    public static void read(Path path, String hash) {
+        Recorder recorder = current.get();
+        if (recorder != null) recorder.inputs().put(recorder.manifest().key(path), hash);
+    }
+
+    public static void missing(Path path) {
+        Recorder recorder = current.get();
+        if (recorder != null) recorder.inputs().put(recorder.manifest().key(path), ABSENT);
+    }
+
+    public static void template(String name, String hash) {
+        Recorder recorder = current.get();
+        if (recorder != null) recorder.inputs().put(TEMPLATE + name, hash);
+    }
+
+    public static void option(String name, String value) {
+        Recorder recorder = current.get();
+        if (recorder != null) recorder.inputs().put(OPTION + name, value);
+    }
+
+    // Whether Output should write the file, false when it is unchanged or was edited by hand
+    public static boolean output(Path path, String content) {
+        Recorder recorder = current.get();
+        if (recorder == null) return true;
+        Manifest manifest = recorder.manifest();
+        String key = manifest.key(path);
+        String hash = Hashes.sha256(content.getBytes(StandardCharsets.UTF_8));
+        String existing = manifest.hashOf(key);
+        String previous = manifest.generated.get(key);
+
+        if (previous != null && !existing.equals(ABSENT) && !existing.equals(previous)) {
+            // Keep the generated hash so the file is still reported on the next run
+            recorder.outputs().put(key, previous);
+            manifest.edited.add(key);
+            return false;
+        }
+        recorder.outputs().put(key, hash);
+        manifest.generated.put(key, hash);
+        return !existing.equals(hash);
+    }
+
+    private boolean isUpToDate(Step step) {
+        for (Map.Entry<String, String> input : step.inputs().entrySet()) {
+            if (!input.getValue().equals(currentValue(input.getKey(), input.getValue()))) return false;
+        }
+        for (Map.Entry<String, String> output : step.outputs().entrySet()) {
+            if (!output.getValue().equals(hashOf(output.getKey()))) return false;
+        }
+        return true;
+    }
+
+    private String currentValue(String key, String recorded) {
+        if (key.startsWith(TEMPLATE)) {
+            try {
+                return Templates.get(key.substring(TEMPLATE.length())).hash();
+            } catch (GenerationException e) {
+                return ABSENT;
+            }
+        }
+        if (key.startsWith(OPTION)) {
+            String value = GeneratorOptions.value(key.substring(OPTION.length()));
+            return value != null ? value : ABSENT;
+        }
+        if (key.startsWith(LISTING)) return listingHash(names(moduleDir.resolve(key.substring(LISTING.length()))));
+        if (recorded.equals(PRESENT)) return Files.exists(moduleDir.resolve(key)) ? PRESENT : ABSENT;
+        return hashOf(key);
+    }
+
+    private String hashOf(String key) {
+        Path path = moduleDir.resolve(key);
+        try {
+            return Files.isRegularFile(path) ? Hashes.sha256(Files.readAllBytes(path)) : ABSENT;
+        } catch (IOException e) {
+            return ABSENT;
+        }
+    }
+
+    private static List<String> names(Path directory) {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (var paths = Files.list(directory)) {
+            return paths.map(path -> path.getFileName().toString()).sorted().toList();
+        } catch (IOException e) {
+            throw new GenerationException("Unable to list " + directory, e);
+        }
+    }
+
+    private static String listingHash(List<String> names) {
+        return Hashes.sha256(String.join("\n", names).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String key(Path path) {
+        return moduleDir.relativize(path.toAbsolutePath().normalize()).toString().replace(File.separatorChar, '/');
+    }
+
+    private static List<String> sorted(ConcurrentLinkedQueue<String> values) {
+        List<String> result = new ArrayList<>(values);
+        result.sort(null);
+        return result;
+    }
+}
@@ -0,0 +1,131 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class MapperGenerator {
+
+    public static void generate(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String basePackage = layout.basePackage();
+
+        // Mapper is generated only for the DTOs that exist
+        Path requestFile = layout.dtoRequest(modelName);
+        Path responseFile = layout.dtoResponse(modelName);
+        JavaSource request = Manifest.exists(requestFile) ? JavaSource.read(requestFile) : null;
+        JavaSource response = Manifest.exists(responseFile) ? JavaSource.read(responseFile) : null;
+        if (request == null && response == null) return;
+
+        Path mapperFile = layout.dtoMapper(modelName);
+        List<String> relationImports = new ArrayList<>();
+        StringBuilder body = new StringBuilder(2048);
+        body.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        if (request != null) {
+            body.append("import ").append(basePackage).append(".dto.request.").append(modelName).append("DtoRequest;\n");
+        }
+        if (response != null) {
+            body.append("import ").append(basePackage).append(".dto.response.").append(modelName).append("DtoResponse;\n");
+        }
+        body.append("\n");
+        body.append("public class ").append(modelName).append("DtoMapper {\n");
+        body.append("\n");
+
+        if (request != null) {
+            body.append("    public static ").append(className).append(" toModel(").append(modelName).append("DtoRequest request) {\n");
+            body.append("        ").append(className).append(" model = new ").append(className).append("();\n");
+            body.append("\n");
+            for (JavaSource.Field field : model.fields()) {
+                String fieldType = field.type();
+                String fullFieldName = Names.capitalize(field.name());
+                String fieldName = Names.stripSuffix(field.name(), "Model");
+                if (request.hasField(declaration(".*", fieldName))) {
+                    String upperFieldName = Names.capitalize(fieldName);
+                    body.append("        model.set").append(upperFieldName)
+                            .append("(request.get").append(upperFieldName).append("());\n");
+                } else if (request.hasField(declaration(".*", fieldName + "Id"))) {
+                    String lowerFieldName = Names.decapitalize(fieldName);
+                    String upperFieldName = Names.capitalize(fieldName);
+                    body.append("        ").append(fieldType).append(" ").append(lowerFieldName)
+                            .append(" = new ").append(fieldType).append("();\n");
+                    body.append("        ").append(lowerFieldName).append(".setId(request.get")
+                            .append(upperFieldName).append("Id());\n");
+                    body.append("        model.set").append(fullFieldName).append("(").append(lowerFieldName).append(");\n");
+                    relationImports.add("import " + basePackage + ".model." + fieldType + ";\n");
+                }
+            }
+            body.append("\n");
+            body.append("        return model;\n");
+            body.append("    }\n");
+            body.append("\n");
+        }
+
+        if (response != null) {
+            body.append("    public static ").append(modelName).append("DtoResponse toResponse(").append(className).append(" model) {\n");
+            body.append("        ").append(modelName).append("DtoResponse response = new ").append(modelName).append("DtoResponse();\n");
+            body.append("\n");
+            for (JavaSource.Field field : model.fields()) {
+                String fieldType = field.type();
+                String fieldName = field.name();
+                if (copiedToResponse(response, field)) {
+                    String upperFieldName = Names.capitalize(fieldName);
+                    body.append("        response.set").append(upperFieldName)
+                            .append("(model.get").append(upperFieldName).append("());\n");
+                } else {
+                    fieldType = Names.stripSuffix(fieldType, "Model");
+                    List<String> nested = nestedResponse(response, field);
+                    if (!nested.isEmpty()) {
+                        body.append("        response.set").append(responseFieldName(nested, fieldType))
+                                .append("(").append(fieldType).append("DtoMapper.toResponse(model.get")
+                                .append(Names.capitalize(fieldName)).append("()));\n");
+                    }
+                }
+            }
+            body.append("\n");
+            body.append("        return response;\n");
+            body.append("    }\n");
+            body.append("\n");
+        }
+
+        body.append("    private ").append(modelName).append("DtoMapper() {}\n");
+        body.append("\n");
+        body.append("}\n");
+
+        // Relation imports end up above the model import, last relation first
+        StringBuilder out = new StringBuilder(body.length() + 256);
+        out.append("package ").append(layout.packageOf(mapperFile.getParent())).append(";\n");
+        out.append("\n");
+        for (int i = relationImports.size() - 1; i >= 0; i--) {
+            out.append(relationImports.get(i));
+        }
+        out.append(body);
+        Output.write(mapperFile, out);
+    }
+
+    // Whether toResponse copies the field as it is
+    public static boolean copiedToResponse(JavaSource response, JavaSource.Field field) {
+        return response.hasField(Pattern.compile(Pattern.quote("private " + field.type() + " " + field.name() + ";")));
+    }
+
+    // Declarations of the response DTO toResponse fills from a relation with the relation's mapper, empty when there is none
+    public static List<String> nestedResponse(JavaSource response, JavaSource.Field field) {
+        return response.matching(declaration(Pattern.quote(Names.stripSuffix(field.type(), "Model") + "DtoResponse"), ".*"));
+    }
+
+    // 'private <type> <name>;' where type and name are regular expressions
+    private static Pattern declaration(String type, String name) {
+        if (!name.equals(".*")) name = Pattern.quote(name);
+        return Pattern.compile("private " + type + " " + name + ";");
+    }
+
+    // Name of the response field holding the nested DTO, read from its declaration
+    private static String responseFieldName(List<String> declarations, String fieldType) {
+        Pattern declaration = Pattern.compile("private " + Pattern.quote(fieldType + "DtoResponse") + " (.+);");
+        List<String> names = new ArrayList<>();
+        for (String line : declarations) {
+            String name = declaration.matcher(line).replaceFirst("$1");
+            names.add(name.length() > 4 ? name.substring(4) : "");
+        }
+        return Names.capitalize(String.join("\n", names));
+    }
+}
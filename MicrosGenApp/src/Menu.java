@@ -16,7 +16,7 @@ public class Menu extends JFrame {
         Preferences prefs = Preferences.userNodeForPackage(Menu.class);
         String lastDirectory = prefs.get("lastDirectory", null);
         JFileChooser fileChooser = new JFileChooser(lastDirectory);
-        FileChecker.createTempFiles();
+        FileChecker.createScriptsDir();
 
         try {
             BufferedImage logoImage = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("resources/static/logo.png")));
@@ -59,6 +59,9 @@ public class Menu extends JFrame {
         // Display the menu panel initially
         cardLayout.show(container, "1");
         settingsPanel.loadSettings();
+
+        // Scripts are only needed for the legacy mode or the extracted templates, copied off the EDT
+        if (Run.useScripts || !Templates.fromClasspath) FileChecker.createTempFilesAsync();
     }
 
     public static void registerThemeChangeListener(Component component) {
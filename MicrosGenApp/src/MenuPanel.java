@@ -8,24 +8,34 @@ import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.prefs.Preferences;
 
-public class MenuPanel extends JPanel {
+public final class MenuPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
     public final static String SCRIPT_PATH = System.getProperty("java.io.tmpdir") + File.separator + "microgen_scripts";
     private String directory = null;
     private String directoryName = null;
     private String os;
     private String runCommand;
     private JLabel processInfoLabel;
+    private JLabel timingLabel;
     private JComboBox<String> comboBox;
+    private JLabel findingsLabel;
+    private transient List<ModelLinter.Finding> findings = List.of();
+    private int lintRuns;
     private JButton generateDTOButton;
     private JButton generateDTOMapperButton;
     private JButton mainButton;
     private JButton generateTestsButton;
+    private JProgressBar progressBar;
+    private JButton showLogButton;
+    private transient RunLog lastLog;
+    private transient Path lastLogFile;
     private static GenerateAction generateAction = GenerateAction.FULL_SERVICE;
 
     public MenuPanel(JFileChooser fileChooser, Preferences prefs) {
@@ -57,12 +67,43 @@ public class MenuPanel extends JPanel {
         processInfoLabel = new JLabel("Empty history");
         Styles.labelNeutralColor(processInfoLabel);
         processInfoPanel.add(processInfoLabel);
+        // Where the time of the last run went
+        timingLabel = new JLabel();
+        Styles.labelNeutralColor(timingLabel);
+        timingLabel.setFont(new Font("Arial", Font.PLAIN, 11));
+        processInfoPanel.add(timingLabel);
+
+        // Live progress of the running action and the log of the last run
+        JPanel progressPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        progressPanel.setOpaque(false);
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(260, 20));
+        progressBar.setVisible(false);
+        showLogButton = new JButton("Show log");
+        Styles.button(showLogButton);
+        showLogButton.setFont(new Font("Arial", Font.PLAIN, 12));
+        Styles.buttonSetEnabled(showLogButton, false);
+        showLogButton.addActionListener(e -> showLastLog());
+        progressPanel.add(progressBar);
+        progressPanel.add(showLogButton);
 
         JLabel directoryInfoLabel = new JLabel("No directory selected");
         Styles.labelNeutralColor(directoryInfoLabel);
         processInfoPanel.add(directoryInfoLabel);
 
         comboBox = new JComboBox<>();
+        comboBox.addActionListener(e -> lintModels());
+        // Performance findings of the selected models, the details open on click
+        findingsLabel = new JLabel();
+        findingsLabel.setForeground(new Color(230, 150, 0));
+        findingsLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        findingsLabel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                showFindings();
+            }
+        });
         // Create form panel
         JPanel directorySelectPanel = new JPanel();
         directorySelectPanel.setLayout(new FlowLayout(FlowLayout.CENTER));
@@ -85,31 +126,20 @@ public class MenuPanel extends JPanel {
                 comboBox.addItem("All Models");
                 comboBox.setForeground(Styles.fgColor);
                 comboBox.setBackground(Styles.bgColor);
-                try {
-                    Optional<Path> basePath = findModelDirectory(new File(directory + "/src"));
-                    basePath.ifPresent((path) -> {
-                        File directory = new File(path + File.separator + "model"); // Replace with your directory path
-                        if (directory.isDirectory()) {
-                            File[] files = directory.listFiles();
-                            if (files != null) {
-                                for (File file : files) {
-                                    if (file.isFile()) {
-                                        String fileName = file.getName();
-                                        String nameWithoutExtension = fileName.replaceFirst("[.][^.]+$", ""); // Remove file extension
-                                        comboBox.addItem(nameWithoutExtension);
-                                    }
-                                }
-                            }
-                        }
-                    });
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
+                // Models fill in once the project is indexed and follow changes on disk
+                ProjectIndex index = ProjectIndex.open(selectedDirectory.toPath());
+                String indexedDirectory = directory;
+                Runnable refresh = () -> SwingUtilities.invokeLater(() -> {
+                    if (indexedDirectory.equals(directory)) updateModels(index);
+                });
+                index.addListener(refresh);
+                index.ready().thenRun(refresh);
             }
         });
         directorySelectPanel.add(directoryLabel);
         directorySelectPanel.add(chooseButton);
         directorySelectPanel.add(comboBox);
+        directorySelectPanel.add(findingsLabel);
 
         // Create action panel
         JPanel firstRowPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -146,6 +176,7 @@ public class MenuPanel extends JPanel {
         add(firstRowPanel);
         add(secondRowPanel);
         add(processInfoPanel);
+        add(progressPanel);
         add(settingsPanel);
 
         defineOs();
@@ -164,16 +195,62 @@ public class MenuPanel extends JPanel {
         runCommand = os.equals("win") ? "C:\\Program Files\\Git\\bin\\bash.exe" : "sh";
     }
 
-    private static Optional<Path> findModelDirectory(File directory) {
-        try {
-            return Files.walk(directory.toPath())
-                    .filter(path -> path.endsWith("model"))
-                    .map(Path::getParent)
-                    .findFirst();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Optional.empty();
+    // Keeps "All Models" first and the selected model when it still exists
+    private void updateModels(ProjectIndex index) {
+        Object selected = comboBox.getSelectedItem();
+        comboBox.removeAllItems();
+        comboBox.addItem("All Models");
+        for (String model : index.models(Path.of(directory))) comboBox.addItem(model);
+        if (selected != null) comboBox.setSelectedItem(selected);
+        if (comboBox.getSelectedIndex() < 0) comboBox.setSelectedIndex(0);
+    }
+
+    // Lints the selected models in the background, only the newest check updates the label
+    private void lintModels() {
+        Object selected = comboBox.getSelectedItem();
+        int run = ++lintRuns;
+        if (directory == null || selected == null) {
+            showFindingsCount(List.of());
+            return;
         }
+        String lintDirectory = directory;
+        new SwingWorker<List<ModelLinter.Finding>, Void>() {
+            @Override
+            protected List<ModelLinter.Finding> doInBackground() {
+                return ModelLinter.lint(lintDirectory, selected.toString());
+            }
+
+            @Override
+            protected void done() {
+                if (run != lintRuns) return;
+                try {
+                    showFindingsCount(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    showFindingsCount(List.of());
+                }
+            }
+        }.execute();
+    }
+
+    private void showFindingsCount(List<ModelLinter.Finding> findings) {
+        this.findings = findings;
+        findingsLabel.setText(findings.isEmpty() ? "" : "\u26A0 " + findings.size() + (findings.size() == 1 ? " finding" : " findings"));
+        StringBuilder tooltip = new StringBuilder("<html>");
+        for (ModelLinter.Finding finding : findings) {
+            tooltip.append(finding.model()).append(finding.field() != null ? "." + finding.field() : "").append(": ").append(finding.rule()).append("<br>");
+        }
+        findingsLabel.setToolTipText(findings.isEmpty() ? null : tooltip.append("</html>").toString());
+    }
+
+    private void showFindings() {
+        if (findings.isEmpty()) return;
+        StringBuilder text = new StringBuilder();
+        for (ModelLinter.Finding finding : findings) text.append(finding.text()).append("\n\n");
+        JTextArea findingsArea = new JTextArea(text.toString().strip(), 15, 70);
+        findingsArea.setEditable(false);
+        findingsArea.setLineWrap(true);
+        findingsArea.setWrapStyleWord(true);
+        JOptionPane.showMessageDialog(this, new JScrollPane(findingsArea), "Model findings", JOptionPane.PLAIN_MESSAGE);
     }
 
     private JPanel createAndShowGUI() {
@@ -181,18 +258,12 @@ public class MenuPanel extends JPanel {
         mainButton = new JButton("Generate Service");
         mainButton.addActionListener(e -> {
             if(checkDirectoryIsEmpty()) return;
-            String[] scriptPath = Run.defineScriptPath(generateAction,comboBox.getSelectedItem().toString());
+            GenerateAction action = generateAction;
+            String[] scriptPath = Run.defineScriptPath(action,comboBox.getSelectedItem().toString());
             processInfoLabel.setText(scriptPath[2]);
             Styles.labelNeutralColor(processInfoLabel);
             setButtonsEnabled(false);
-            new SwingWorker<Void, Void>() {
-                @Override
-                protected Void doInBackground() {
-                    Run.runScript(scriptPath, processInfoLabel, directory, runCommand, SCRIPT_PATH, comboBox.getSelectedItem().toString());
-                    setButtonsEnabled(true);
-                    return null;
-                }
-            }.execute();
+            startRun(action, scriptPath, comboBox.getSelectedItem().toString());
         });
         Styles.button(mainButton);
 
@@ -257,6 +328,13 @@ public class MenuPanel extends JPanel {
         });
         popupMenu.add(option6);
 
+        JMenuItem option7 = new JMenuItem("Generate All");
+        option7.addActionListener(e -> {
+            mainButton.setText(option7.getText());
+            generateAction = GenerateAction.PIPELINE;
+        });
+        popupMenu.add(option7);
+
         return popupMenu;
     }
 
@@ -269,14 +347,7 @@ public class MenuPanel extends JPanel {
             processInfoLabel.setText(scriptPath[2]);
             Styles.labelNeutralColor(processInfoLabel);
             setButtonsEnabled(false);
-            new SwingWorker<Void, Void>() {
-                @Override
-                protected Void doInBackground() {
-                    Run.runScript(scriptPath, processInfoLabel, directory, runCommand, SCRIPT_PATH, comboBox.getSelectedItem().toString());
-                    setButtonsEnabled(true);
-                    return null;
-                }
-            }.execute();
+            startRun(GenerateAction.DTO, scriptPath, comboBox.getSelectedItem().toString());
         });
         return generateDTOButton;
     }
@@ -290,14 +361,7 @@ public class MenuPanel extends JPanel {
             processInfoLabel.setText(scriptPath[2]);
             Styles.labelNeutralColor(processInfoLabel);
             setButtonsEnabled(false);
-            new SwingWorker<Void, Void>() {
-                @Override
-                protected Void doInBackground() {
-                    Run.runScript(scriptPath, processInfoLabel, directory, runCommand, SCRIPT_PATH, comboBox.getSelectedItem().toString());
-                    setButtonsEnabled(true);
-                    return null;
-                }
-            }.execute();
+            startRun(GenerateAction.MAPPER, scriptPath, comboBox.getSelectedItem().toString());
         });
         return generateDTOButton;
     }
@@ -311,18 +375,65 @@ public class MenuPanel extends JPanel {
             processInfoLabel.setText(scriptPath[2]);
             Styles.labelNeutralColor(processInfoLabel);
             setButtonsEnabled(false);
-            new SwingWorker<Void, Void>() {
-                @Override
-                protected Void doInBackground() {
-                    Run.runScript(scriptPath, processInfoLabel, directory, runCommand, SCRIPT_PATH, comboBox.getSelectedItem().toString());
-                    setButtonsEnabled(true);
-                    return null;
-                }
-            }.execute();
+            startRun(GenerateAction.TEST, scriptPath, comboBox.getSelectedItem().toString());
         });
         return generateTestsButton;
     }
 
+    // Runs the action in the background and streams its progress into the progress bar
+    private void startRun(GenerateAction action, String[] scriptPath, String model) {
+        RunLog log = new RunLog(action + " " + model);
+        progressBar.setIndeterminate(Run.useScripts);
+        progressBar.setMaximum(1);
+        progressBar.setValue(0);
+        progressBar.setString(scriptPath[2]);
+        progressBar.setVisible(true);
+        timingLabel.setText("");
+        new SwingWorker<Void, ProgressEvent>() {
+            private Path logFile;
+            private RunMetrics metrics;
+
+            @Override
+            protected Void doInBackground() {
+                metrics = Run.run(action, scriptPath, processInfoLabel, directory, runCommand, SCRIPT_PATH, model, event -> publish(event), log);
+                logFile = log.save(SCRIPT_PATH);
+                return null;
+            }
+
+            @Override
+            protected void process(List<ProgressEvent> events) {
+                if (isDone()) return;
+                for (ProgressEvent event : events) {
+                    if (event.total() > 0) {
+                        progressBar.setMaximum(event.total());
+                        progressBar.setValue(Math.max(progressBar.getValue(), event.done()));
+                    }
+                }
+                progressBar.setString(events.get(events.size() - 1).message());
+            }
+
+            @Override
+            protected void done() {
+                progressBar.setVisible(false);
+                timingLabel.setText(metrics != null ? metrics.summary() : "");
+                lastLog = log;
+                lastLogFile = logFile;
+                Styles.buttonSetEnabled(showLogButton, true);
+                setButtonsEnabled(true);
+                lintModels();
+            }
+        }.execute();
+    }
+
+    private void showLastLog() {
+        if (lastLog == null) return;
+        JTextArea logArea = new JTextArea(lastLog.text(), 20, 70);
+        logArea.setEditable(false);
+        logArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        String title = lastLogFile != null ? "Run log - " + lastLogFile : "Run log";
+        JOptionPane.showMessageDialog(this, new JScrollPane(logArea), title, JOptionPane.PLAIN_MESSAGE);
+    }
+
     private void setButtonsEnabled(boolean enabled) {
         Styles.buttonSetEnabled(generateDTOButton, enabled);
         Styles.buttonSetEnabled(generateDTOMapperButton, enabled);
@@ -0,0 +1,42 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Parsed models shared by every run, keyed by path and invalidated when the file changes
+public class ModelCache {
+    private record Entry(FileTime modified, long size, ModelDescriptor descriptor) {
+    }
+
+    private static final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    public static ModelDescriptor get(Path modelFile) {
+        Path path = modelFile.toAbsolutePath().normalize();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Entry entry = entries.get(path);
+            if (entry != null && entry.modified().equals(attributes.lastModifiedTime()) && entry.size() == attributes.size()) {
+                return entry.descriptor();
+            }
+
+            // A touched file with the same content keeps its descriptor
+            long mark = RunMetrics.mark();
+            byte[] content = Files.readAllBytes(path);
+            ModelDescriptor descriptor = entry != null && entry.descriptor().hash().equals(Hashes.sha256(content))
+                    ? entry.descriptor()
+                    : ModelParser.parse(path, content);
+            RunMetrics.record(RunMetrics.Phase.PARSING, mark);
+            entries.put(path, new Entry(attributes.lastModifiedTime(), attributes.size(), descriptor));
+            return descriptor;
+        } catch (IOException e) {
+            throw new GenerationException("Unable to read " + modelFile.getFileName(), e);
+        }
+    }
+
+    public static void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,39 @@
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// Everything the generators need from one model class, read once by ModelParser
+public record ModelDescriptor(Path path,
+                              String hash,
+                              String className,
+                              Flavor flavor,
+                              String idType,
+                              String idName,
+                              List<JavaSource.Field> fields,
+                              boolean usesBigDecimal,
+                              boolean declaresBigDecimal,
+                              boolean declaresDate,
+                              boolean declaresLocalDateTime,
+                              String classAnnotations,
+                              Map<String, String> fieldAnnotations) {
+
+    public enum Flavor {
+        JPA,
+        MONGO,
+        UNKNOWN
+    }
+
+    public ModelDescriptor {
+        fields = List.copyOf(fields);
+        fieldAnnotations = Map.copyOf(fieldAnnotations);
+    }
+
+    // Source of the annotations above the field, ending with its declaration
+    public String annotations(JavaSource.Field field) {
+        return fieldAnnotations.getOrDefault(field.name(), "");
+    }
+
+    public String modelName() {
+        return Names.stripSuffix(className, "Model");
+    }
+}
@@ -0,0 +1,23 @@
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Raised after a parallel step when one or more models failed, keeps every model's own error
+public final class ModelFailures extends GenerationException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Map<String, RuntimeException> failures;
+
+    public ModelFailures(Map<String, RuntimeException> failures) {
+        super(failures.entrySet().stream()
+                .map(failure -> failure.getKey() + ": " + failure.getValue().getMessage())
+                .collect(Collectors.joining("\n")));
+        this.failures = Collections.unmodifiableMap(failures);
+        failures.values().forEach(this::addSuppressed);
+    }
+
+    // Model class name to its error, in the order the models were generated
+    public Map<String, RuntimeException> failures() {
+        return failures;
+    }
+}
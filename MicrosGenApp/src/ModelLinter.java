@@ -0,0 +1,173 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Checks the models for mappings that are slow in production, before anything is generated from them
+public class ModelLinter {
+    private static final Pattern JOIN_COLUMN = Pattern.compile("@JoinColumn\\([^)]*name\\s*=\\s*\"([^\"]+)\"");
+    private static final Pattern COLUMN_LIST = Pattern.compile("columnList\\s*=\\s*\"([^\"]+)\"");
+    private static final Pattern COMPOUND_INDEX = Pattern.compile("def\\s*=\\s*\"\\{\\s*'([^']+)'");
+    private static final Pattern DERIVED_QUERY = Pattern.compile("\\s(?:find|read|get|query|search|stream|count|exists|delete|remove)\\w*?By(\\w+)\\(");
+    private static final Pattern CRITERIA = Pattern.compile("(?:And|Or)(?=[A-Z])");
+
+    // field is null for findings about the whole model, fix is null when there is no single fix to suggest.
+    // index is the column (JPA) or field (Mongo) a missing index should start with, null for other findings
+    public record Finding(String model, String field, String rule, String message, String fix, String index) {
+        public String text() {
+            return model + (field != null ? "." + field : "") + ": " + message + (fix != null ? " Fix: " + fix : "");
+        }
+    }
+
+    // Findings for a model or ModuleLayout.ALL_MODELS, empty when the module has no models to check
+    public static List<Finding> lint(String directory, String model) {
+        try {
+            ModuleLayout layout = ModuleLayout.resolve(directory);
+            List<Finding> findings = new ArrayList<>();
+            for (ModelDescriptor descriptor : layout.models(model)) findings.addAll(lint(layout, descriptor));
+            return findings;
+        } catch (GenerationException e) {
+            // The generation itself reports a missing model directory or model
+            return List.of();
+        }
+    }
+
+    public static List<Finding> lint(ModuleLayout layout, ModelDescriptor model) {
+        List<Finding> findings = new ArrayList<>();
+        switch (model.flavor()) {
+            case JPA -> lintEntity(layout, model, findings);
+            case MONGO -> lintDocument(layout, model, findings);
+            case UNKNOWN -> {
+            }
+        }
+        lintLookups(layout, model, findings);
+        return findings;
+    }
+
+    private static void lintEntity(ModuleLayout layout, ModelDescriptor model, List<Finding> findings) {
+        String className = model.className();
+        for (JavaSource.Field field : model.fields()) {
+            String annotations = model.annotations(field);
+            if (Names.isCollection(field.type()) && annotations.contains("FetchType.EAGER")) {
+                findings.add(new Finding(className, field.name(), "eager-collection",
+                        "Eager collection, every " + className + " that is loaded also loads its " + field.name() + ", one more query per row of a page",
+                        "remove fetch = FetchType.EAGER and fetch " + field.name() + " where it is read, with an entity graph or a join fetch", null));
+            }
+            if (field.name().equals(model.idName()) && annotations.contains("GenerationType.IDENTITY")) {
+                findings.add(new Finding(className, field.name(), "identity-id",
+                        "IDENTITY ids are assigned by the insert itself, so Hibernate cannot batch the inserts of " + className,
+                        "@GeneratedValue(strategy = GenerationType.SEQUENCE) with @SequenceGenerator(allocationSize = 50)", null));
+            }
+            if (annotations.contains("@ManyToMany") && field.type().startsWith("List<") && !annotations.contains("@OrderColumn")) {
+                findings.add(new Finding(className, field.name(), "many-to-many-list",
+                        "A many-to-many List is a bag, removing one element deletes and inserts again every join table row of the " + className,
+                        "declare it as " + field.type().replaceFirst("^List<", "Set<"), null));
+            }
+
+            // The owning side of a to-one relation holds the foreign key, most databases do not index it on their own
+            ModelDescriptor relation = DtoGenerator.relation(layout, field);
+            boolean owning = annotations.contains("@ManyToOne") || (annotations.contains("@OneToOne") && !annotations.contains("mappedBy"));
+            if (relation == null || !owning) continue;
+            Matcher joinColumn = JOIN_COLUMN.matcher(annotations);
+            String column = joinColumn.find() ? joinColumn.group(1) : column(field.name()) + "_" + column(relation.idName());
+            if (!indexedColumn(model, column) && !annotations.contains("unique = true")) {
+                findings.add(new Finding(className, field.name(), "unindexed-foreign-key",
+                        "Foreign key " + column + " has no index, reading the " + className + " of one " + relation.className()
+                                + " and deleting a " + relation.className() + " scan the whole table",
+                        "@Table(indexes = @Index(columnList = \"" + column + "\"))", column));
+            }
+        }
+    }
+
+    private static void lintDocument(ModuleLayout layout, ModelDescriptor model, List<Finding> findings) {
+        String className = model.className();
+        for (JavaSource.Field field : model.fields()) {
+            String annotations = model.annotations(field);
+            ModelDescriptor referenced = null;
+            if (annotations.contains("@DBRef") || annotations.contains("@DocumentReference")) {
+                referenced = layout.model(elementType(field.type()));
+            } else if (field.name().endsWith("Id") && (field.type().equals("String") || field.type().equals("ObjectId"))) {
+                referenced = layout.model(Names.capitalize(Names.stripSuffix(field.name(), "Id")));
+            }
+            if (referenced == null || indexedField(model, field)) continue;
+            findings.add(new Finding(className, field.name(), "unindexed-reference",
+                    field.name() + " references " + referenced.className() + " documents without an index, finding the " + className
+                            + " of one " + referenced.className() + " scans the collection",
+                    "@Indexed on " + field.name(), field.name()));
+        }
+    }
+
+    // Derived queries of a repository that already exists where no criterion is the id or an indexed field
+    private static void lintLookups(ModuleLayout layout, ModelDescriptor model, List<Finding> findings) {
+        Path repositoryFile = RepositoryGenerator.directory(layout).resolve(model.modelName() + "Repository.java");
+        if (!Manifest.exists(repositoryFile)) return;
+        List<String> reported = new ArrayList<>();
+        for (String line : JavaSource.read(repositoryFile).lines()) {
+            Matcher query = DERIVED_QUERY.matcher(line);
+            if (!query.find()) continue;
+            List<JavaSource.Field> queried = new ArrayList<>();
+            for (String criterion : CRITERIA.split(query.group(1).split("OrderBy", 2)[0])) {
+                JavaSource.Field field = queriedField(model, criterion);
+                if (field != null) queried.add(field);
+            }
+            if (queried.isEmpty() || queried.stream().anyMatch(field -> field.name().equals(model.idName()) || indexed(model, field))) continue;
+            JavaSource.Field field = queried.get(0);
+            if (reported.contains(field.name())) continue;
+            reported.add(field.name());
+            String method = line.strip().replaceFirst("\\(.*", "").replaceFirst(".*\\s", "");
+            boolean mongo = model.flavor() == ModelDescriptor.Flavor.MONGO;
+            String index = mongo ? field.name() : column(field.name());
+            findings.add(new Finding(model.className(), field.name(), "unindexed-lookup",
+                    method + " looks " + model.className() + " up by " + field.name() + ", which has no index",
+                    mongo ? "@Indexed on " + field.name() : "@Table(indexes = @Index(columnList = \"" + index + "\"))", index));
+        }
+    }
+
+    // Field a criterion of a derived query starts with, the longest name wins so 'emailVerified' is not read as 'email'
+    private static JavaSource.Field queriedField(ModelDescriptor model, String criterion) {
+        JavaSource.Field queried = null;
+        for (JavaSource.Field field : model.fields()) {
+            if (criterion.startsWith(Names.capitalize(field.name())) && (queried == null || field.name().length() > queried.name().length())) {
+                queried = field;
+            }
+        }
+        return queried;
+    }
+
+    private static boolean indexed(ModelDescriptor model, JavaSource.Field field) {
+        if (model.flavor() == ModelDescriptor.Flavor.MONGO) return indexedField(model, field);
+        String annotations = model.annotations(field);
+        return indexedColumn(model, column(field.name())) || annotations.contains("unique = true") || annotations.contains("@NaturalId");
+    }
+
+    // An index helps a lookup when the column is its first one
+    private static boolean indexedColumn(ModelDescriptor model, String column) {
+        Matcher columnList = COLUMN_LIST.matcher(model.classAnnotations());
+        while (columnList.find()) {
+            String first = columnList.group(1).split(",")[0].strip();
+            if (first.equalsIgnoreCase(column)) return true;
+        }
+        return false;
+    }
+
+    private static boolean indexedField(ModelDescriptor model, JavaSource.Field field) {
+        if (model.annotations(field).contains("@Indexed")) return true;
+        Matcher compoundIndex = COMPOUND_INDEX.matcher(model.classAnnotations());
+        while (compoundIndex.find()) {
+            if (compoundIndex.group(1).equals(field.name())) return true;
+        }
+        return false;
+    }
+
+    // Column name Spring Boot gives a field: 'productModel' -> 'product_model'
+    static String column(String field) {
+        return Names.snake(field);
+    }
+
+    // Element type of a collection, the type itself otherwise
+    static String elementType(String type) {
+        int start = type.indexOf('<');
+        return start >= 0 && type.endsWith(">") ? type.substring(start + 1, type.length() - 1) : type;
+    }
+}
@@ -0,0 +1,63 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ModelParser {
+
+    // Single pass over the model source, same rules as the grep/sed/awk calls in the scripts
+    public static ModelDescriptor parse(Path path, byte[] content) {
+        String className = Names.stripSuffix(path.getFileName().toString(), ".java");
+        List<JavaSource.Field> fields = new ArrayList<>();
+        boolean entity = false;
+        boolean document = false;
+        boolean usesBigDecimal = false;
+        boolean declaresBigDecimal = false;
+        boolean declaresDate = false;
+        boolean declaresLocalDateTime = false;
+        boolean idAnnotationFound = false;
+        String[] idDeclaration = null;
+        // Annotations are the lines between the previous declaration and the next one
+        StringBuilder pending = new StringBuilder();
+        String classAnnotations = "";
+        Map<String, String> fieldAnnotations = new HashMap<>();
+
+        for (String line : new String(content, StandardCharsets.UTF_8).lines().toList()) {
+            // Id is the first 'private' line after the first '@Id'
+            if (idAnnotationFound) {
+                if (idDeclaration == null && line.contains("private")) idDeclaration = JavaSource.words(line);
+            } else if (line.contains("@Id")) {
+                idAnnotationFound = true;
+            }
+
+            // Spring Data relational tables are SQL models as well, their repositories are R2DBC ones
+            entity |= line.contains("@Entity") || line.contains("import org.springframework.data.relational.core.mapping.Table;");
+            document |= line.contains("@Document");
+            usesBigDecimal |= line.contains("BigDecimal");
+            declaresBigDecimal |= line.contains(" BigDecimal ");
+            declaresDate |= line.contains(" Date ");
+            declaresLocalDateTime |= line.contains(" LocalDateTime ");
+
+            JavaSource.Field field = JavaSource.parseField(line);
+            if (field != null) {
+                fields.add(field);
+                fieldAnnotations.putIfAbsent(field.name(), pending.append(line.strip()).toString());
+                pending.setLength(0);
+            } else if (line.contains("class " + className)) {
+                classAnnotations = pending.toString();
+                pending.setLength(0);
+            } else if (!line.startsWith("package ") && !line.startsWith("import ")) {
+                pending.append(line.strip()).append('\n');
+            }
+        }
+
+        if (idDeclaration == null) idDeclaration = new String[0];
+        ModelDescriptor.Flavor flavor = entity ? ModelDescriptor.Flavor.JPA
+                : document ? ModelDescriptor.Flavor.MONGO : ModelDescriptor.Flavor.UNKNOWN;
+        return new ModelDescriptor(path, Hashes.sha256(content), className, flavor,
+                JavaSource.word(idDeclaration, 1), Names.stripSuffix(JavaSource.word(idDeclaration, 2), ";"), fields,
+                usesBigDecimal, declaresBigDecimal, declaresDate, declaresLocalDateTime, classAnnotations, fieldAnnotations);
+    }
+}
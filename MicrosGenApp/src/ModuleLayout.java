@@ -0,0 +1,143 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+public class ModuleLayout {
+    public static final String ALL_MODELS = "All Models";
+    private static final Pattern JAVA_NAME = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    private final Path moduleDir;
+    private final Path baseDir;
+    private final Path testBaseDir;
+    private Map<String, Path> modelIndex;
+
+    private ModuleLayout(Path moduleDir, Path baseDir) {
+        this.moduleDir = moduleDir;
+        this.baseDir = baseDir;
+        // Same as sed 's/main/test/' on the relative base dir
+        String relativeBase = relative(baseDir).replaceFirst("main", "test");
+        this.testBaseDir = moduleDir.resolve(relativeBase);
+    }
+
+    public static ModuleLayout resolve(String directory) {
+        Path moduleDir = Path.of(directory).toAbsolutePath().normalize();
+        if (!Files.isDirectory(moduleDir)) {
+            throw new GenerationException("Unable to navigate to " + directory);
+        }
+        Path src = moduleDir.resolve("src");
+        if (!Files.isDirectory(src)) {
+            throw new GenerationException("'src' directory not found in " + directory);
+        }
+        // The project index already knows the model directory, walking src is the fallback
+        ProjectIndex index = ProjectIndex.find(moduleDir);
+        Path indexedBaseDir = index != null ? index.baseDir(moduleDir) : null;
+        Path baseDir = indexedBaseDir != null && Files.isDirectory(indexedBaseDir.resolve("model"))
+                ? indexedBaseDir
+                : findBaseDir(src).orElseThrow(() -> new GenerationException("'model' directory not found in 'src'"));
+        return new ModuleLayout(moduleDir, baseDir);
+    }
+
+    // Directory that contains the first /model directory, like find src -type d -name model
+    private static Optional<Path> findBaseDir(Path src) {
+        try (Stream<Path> paths = Files.walk(src)) {
+            return paths.filter(path -> Files.isDirectory(path) && path.getFileName().toString().equals("model"))
+                    .map(Path::getParent)
+                    .findFirst();
+        } catch (IOException e) {
+            throw new GenerationException("Unable to scan " + src, e);
+        }
+    }
+
+    public Path moduleDir() {
+        return moduleDir;
+    }
+
+    public Path baseDir() {
+        return baseDir;
+    }
+
+    public Path modelsDir() {
+        return baseDir.resolve("model");
+    }
+
+    public Path testBaseDir() {
+        return testBaseDir;
+    }
+
+    public String basePackage() {
+        return packageOf(baseDir);
+    }
+
+    // Same as sed 's|.*java/||; s|/|.|g'
+    public String packageOf(Path directory) {
+        String path = relative(directory);
+        int javaDir = path.lastIndexOf("java/");
+        if (javaDir >= 0) path = path.substring(javaDir + "java/".length());
+        return path.replace('/', '.');
+    }
+
+    public Path dtoRequest(String modelName) {
+        return baseDir.resolve("dto/request/" + modelName + "DtoRequest.java");
+    }
+
+    public Path dtoResponse(String modelName) {
+        return baseDir.resolve("dto/response/" + modelName + "DtoResponse.java");
+    }
+
+    public Path dtoMapper(String modelName) {
+        return baseDir.resolve("dto/mapper/" + modelName + "DtoMapper.java");
+    }
+
+    // Parsed model for a field type, or null when the type is not one of the models
+    public ModelDescriptor model(String type) {
+        Path file = modelIndex().get(type);
+        if (file == null) {
+            // A model added later with this name changes the output
+            if (JAVA_NAME.matcher(type).matches()) Manifest.missing(modelsDir().resolve(type + ".java"));
+            return null;
+        }
+        ModelDescriptor descriptor = ModelCache.get(file);
+        Manifest.read(file, descriptor.hash());
+        return descriptor;
+    }
+
+    public List<ModelDescriptor> models(String model) {
+        if (!ALL_MODELS.equals(model)) {
+            ModelDescriptor descriptor = model(model);
+            if (descriptor == null) {
+                throw new GenerationException("Model " + model + " not found in /model dir");
+            }
+            return List.of(descriptor);
+        }
+        List<ModelDescriptor> descriptors = new ArrayList<>();
+        for (Path file : modelIndex().values()) descriptors.add(ModelCache.get(file));
+        return descriptors;
+    }
+
+    // /model is listed once per layout, sorted by file name like the scripts' glob
+    private synchronized Map<String, Path> modelIndex() {
+        if (modelIndex == null) {
+            Map<String, Path> index = new TreeMap<>();
+            try (Stream<Path> paths = Files.list(modelsDir())) {
+                paths.filter(path -> path.getFileName().toString().endsWith(".java") && Files.isRegularFile(path))
+                        .forEach(path -> index.put(Names.stripSuffix(path.getFileName().toString(), ".java"), path));
+            } catch (IOException e) {
+                throw new GenerationException("Unable to list " + modelsDir(), e);
+            }
+            modelIndex = index;
+        }
+        return modelIndex;
+    }
+
+    private String relative(Path path) {
+        return moduleDir.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+}
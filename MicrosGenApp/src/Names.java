@@ -0,0 +1,72 @@
+public class Names {
+
+    // Same as bash ${name^}
+    public static String capitalize(String name) {
+        if (name.isEmpty()) return name;
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    // Same as bash ${name,}
+    public static String decapitalize(String name) {
+        if (name.isEmpty()) return name;
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    public static String stripSuffix(String name, String suffix) {
+        return name.endsWith(suffix) ? name.substring(0, name.length() - suffix.length()) : name;
+    }
+
+    // "firstName" -> "First Name", used in validation messages
+    public static String humanize(String name) {
+        StringBuilder capitalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean wordStart = i == 0 || !isLetter(name.charAt(i - 1));
+            capitalized.append(wordStart && c >= 'a' && c <= 'z' ? Character.toUpperCase(c) : c);
+        }
+        StringBuilder spaced = new StringBuilder(capitalized.length() + 8);
+        for (int i = 0; i < capitalized.length(); i++) {
+            char c = capitalized.charAt(i);
+            if (c >= 'A' && c <= 'Z') spaced.append(' ');
+            spaced.append(c);
+        }
+        return spaced.toString().stripLeading();
+    }
+
+    // "orderItem" -> "order-item", used for the controller request mapping
+    public static String kebab(String name) {
+        StringBuilder result = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                result.append('-').append(Character.toLowerCase(c));
+            } else {
+                result.append(Character.toLowerCase(c));
+            }
+        }
+        return result.toString();
+    }
+
+    // "OrderItem" -> "order_item", like the CamelCaseToUnderscoresNamingStrategy of Spring Boot: an underscore only
+    // between a lowercase letter and a capitalized word, so there is none in front of the first letter
+    public static String snake(String name) {
+        StringBuilder result = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (i > 0 && i < name.length() - 1 && Character.isLowerCase(name.charAt(i - 1)) && Character.isUpperCase(c)
+                    && Character.isLowerCase(name.charAt(i + 1))) {
+                result.append('_');
+            }
+            result.append(Character.toLowerCase(c));
+        }
+        return result.toString();
+    }
+
+    public static boolean isCollection(String type) {
+        return type.contains("List") || type.contains("Set") || type.contains("Collection");
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+
+public class Output {
+    // Told about every file written by the step running on the current thread
+    private static final ThreadLocal<Consumer<Path>> listener = new ThreadLocal<>();
+
+    public static void listen(Consumer<Path> writes) {
+        if (writes != null) {
+            listener.set(writes);
+        } else {
+            listener.remove();
+        }
+    }
+
+    public static void write(Path file, CharSequence content) {
+        String text = content.toString();
+        long mark = RunMetrics.mark();
+        boolean changed = Manifest.output(file, text);
+        RunMetrics.record(RunMetrics.Phase.CHECKING, mark);
+        if (!changed) return;
+        mark = RunMetrics.mark();
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            Files.createDirectories(file.getParent());
+            // Whole file in one write to a temp file, then moved over the target
+            Path temporary = Files.createTempFile(file.getParent(), "." + file.getFileName(), ".tmp");
+            try {
+                Files.write(temporary, data);
+                try {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            RunMetrics.wrote(mark, data.length);
+            Consumer<Path> writes = listener.get();
+            if (writes != null) writes.accept(file);
+        } catch (IOException e) {
+            throw new GenerationException("Unable to write " + file.getFileName(), e);
+        }
+    }
+
+    public static void createDirectories(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new GenerationException("Unable to create " + directory.getFileName(), e);
+        }
+    }
+}
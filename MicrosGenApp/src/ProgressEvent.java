@@ -0,0 +1,27 @@
+// Progress of a run, published from the worker threads to the UI and the run log
+public record ProgressEvent(Type type, String model, String step, String detail, int done, int total) {
+
+    public enum Type {
+        STARTED,
+        WRITTEN,
+        DONE,
+        FAILED,
+        OUTPUT
+    }
+
+    public static ProgressEvent output(String line) {
+        return new ProgressEvent(Type.OUTPUT, null, null, line, 0, 0);
+    }
+
+    // Text shown in the live progress view and stored in the log
+    public String message() {
+        String subject = model != null ? model + " " + step : step != null ? step : "";
+        return switch (type) {
+            case STARTED -> "Generating " + subject;
+            case WRITTEN -> "Wrote " + detail;
+            case DONE -> "Done " + subject + " (" + done + "/" + total + ")";
+            case FAILED -> "Failed " + subject + ": " + detail;
+            case OUTPUT -> detail;
+        };
+    }
+}
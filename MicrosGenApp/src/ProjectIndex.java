@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Every /model directory of a project and its submodules, scanned once in the background and kept current with a WatchService
+public class ProjectIndex {
+    // Build output and tool folders never hold models and are not watched
+    private static final Set<String> SKIPPED = Set.of(".git", ".idea", ".gradle", ".microsgen", "target", "build", "out", "node_modules");
+    private static final long SETTLE_MILLIS = 200;
+
+    // Model directories in walk order, the same order 'find src -type d -name model' gives, with their model names
+    private record Snapshot(Map<Path, List<String>> modelDirs) {
+    }
+
+    private static volatile ProjectIndex active;
+
+    private final Path root;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final Map<WatchKey, Path> watched = new HashMap<>();
+    private final Set<Path> registered = new HashSet<>();
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private volatile Snapshot snapshot = new Snapshot(Map.of());
+    private WatchService watchService;
+    private Thread watcher;
+
+    private ProjectIndex(Path root) {
+        this.root = root;
+    }
+
+    // Indexes a project in the background and makes it the index the generators use, closing the previous one
+    public static ProjectIndex open(Path directory) {
+        ProjectIndex index = new ProjectIndex(directory.toAbsolutePath().normalize());
+        ProjectIndex previous = active;
+        active = index;
+        if (previous != null) previous.close();
+        index.watcher = new Thread(index::watch, "project-index");
+        index.watcher.setDaemon(true);
+        index.watcher.start();
+        return index;
+    }
+
+    // Index covering the directory once its first scan is done, otherwise null
+    public static ProjectIndex find(Path directory) {
+        ProjectIndex index = active;
+        Path path = directory.toAbsolutePath().normalize();
+        return index != null && index.ready.isDone() && path.startsWith(index.root) ? index : null;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    // Called on the indexer thread after every change of the model directories
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    // Directory holding the first /model of the module, like find src -type d -name model | head -1
+    public Path baseDir(Path moduleDir) {
+        Path src = moduleDir.toAbsolutePath().normalize().resolve("src");
+        for (Path modelDir : snapshot.modelDirs().keySet()) {
+            if (modelDir.startsWith(src)) return modelDir.getParent();
+        }
+        return null;
+    }
+
+    // Model class names of the module, sorted, empty when it has no /model directory
+    public List<String> models(Path moduleDir) {
+        Path baseDir = baseDir(moduleDir);
+        if (baseDir == null) return List.of();
+        return snapshot.modelDirs().getOrDefault(baseDir.resolve("model"), List.of());
+    }
+
+    // Modules of the project that have a /model directory, in walk order
+    public List<Path> modules() {
+        List<Path> modules = new ArrayList<>();
+        for (Path modelDir : snapshot.modelDirs().keySet()) {
+            Path module = moduleOf(modelDir);
+            if (module != null && !modules.contains(module) && modelDir.getParent().equals(baseDir(module))) modules.add(module);
+        }
+        return modules;
+    }
+
+    public void close() {
+        if (active == this) active = null;
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException ignored) {
+        }
+        if (watcher != null) watcher.interrupt();
+    }
+
+    private void watch() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            rescan();
+            ready.complete(null);
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                // Let a burst of changes, like a git checkout, settle before updating
+                Thread.sleep(SETTLE_MILLIS);
+                boolean structureChanged = false;
+                Set<Path> changedModelDirs = new TreeSet<>();
+                for (; key != null; key = watchService.poll()) {
+                    Path directory = watched.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                            structureChanged = true;
+                            continue;
+                        }
+                        Path child = directory.resolve((Path) event.context());
+                        if (snapshot.modelDirs().containsKey(directory) && child.getFileName().toString().endsWith(".java")) {
+                            changedModelDirs.add(directory);
+                        } else if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY) {
+                            structureChanged = true;
+                        }
+                    }
+                    if (!key.reset()) registered.remove(watched.remove(key));
+                }
+                if (structureChanged) {
+                    rescan();
+                } else if (!changedModelDirs.isEmpty()) {
+                    Map<Path, List<String>> modelDirs = new LinkedHashMap<>(snapshot.modelDirs());
+                    for (Path modelDir : changedModelDirs) modelDirs.put(modelDir, listModels(modelDir));
+                    snapshot = new Snapshot(modelDirs);
+                } else {
+                    continue;
+                }
+                listeners.forEach(Runnable::run);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed for another project
+        } catch (IOException e) {
+            ready.completeExceptionally(e);
+            System.err.println("Error while indexing " + root + ": " + e.getMessage());
+        }
+    }
+
+    // Walks the project, registers every directory with the watch service and collects the model directories
+    private void rescan() throws IOException {
+        Map<Path, List<String>> modelDirs = new LinkedHashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                Path module = moduleOf(directory);
+                // Inside src every directory counts, like the find in the scripts
+                if (module == null && !directory.equals(root) && SKIPPED.contains(directory.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (registered.add(directory)) {
+                    watched.put(directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), directory);
+                }
+                if (module != null && directory.getFileName().toString().equals("model")) {
+                    modelDirs.put(directory, listModels(directory));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        watched.entrySet().removeIf(entry -> {
+            if (Files.isDirectory(entry.getValue())) return false;
+            entry.getKey().cancel();
+            registered.remove(entry.getValue());
+            return true;
+        });
+        snapshot = new Snapshot(modelDirs);
+    }
+
+    private static List<String> listModels(Path modelDir) {
+        TreeSet<String> models = new TreeSet<>();
+        try (var paths = Files.list(modelDir)) {
+            paths.filter(Files::isRegularFile)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".java"))
+                    .forEach(name -> models.add(Names.stripSuffix(name, ".java")));
+        } catch (IOException ignored) {
+        }
+        return List.copyOf(models);
+    }
+
+    // Module directory that has the 'src' directory above the path, null outside of any src
+    private Path moduleOf(Path directory) {
+        for (Path path = directory.getParent(); path != null && path.startsWith(root); path = path.getParent()) {
+            if (path.getFileName() != null && path.getFileName().toString().equals("src")) return path.getParent();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,276 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class RepositoryGenerator {
+    // Rows the export reads from the database per round trip, the JPA services clear their persistence context as often
+    public static final int EXPORT_BATCH = 100;
+
+    public static Path directory(ModuleLayout layout) {
+        return layout.baseDir().resolve("repository");
+    }
+
+    public static void generate(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String idType = model.idType();
+        Path repositoryFile = directory(layout).resolve(modelName + "Repository.java");
+
+        boolean jpa = model.flavor() == ModelDescriptor.Flavor.JPA;
+        boolean reactive = GeneratorOptions.reactive();
+        String repositoryExtension;
+        // Library imports, sorted after the imports of the module itself
+        Set<String> imports = new TreeSet<>();
+        if (jpa && reactive) {
+            repositoryExtension = "R2dbcRepository<" + className + ", " + idType + ">";
+            imports.add("org.springframework.data.r2dbc.repository.R2dbcRepository");
+        } else if (jpa) {
+            repositoryExtension = "JpaRepository<" + className + ", " + idType + ">";
+            imports.add("org.springframework.data.jpa.repository.JpaRepository");
+        } else if (model.flavor() == ModelDescriptor.Flavor.MONGO && reactive) {
+            repositoryExtension = "ReactiveMongoRepository<" + className + ", " + idType + ">";
+            imports.add("org.springframework.data.mongodb.repository.ReactiveMongoRepository");
+        } else if (model.flavor() == ModelDescriptor.Flavor.MONGO) {
+            repositoryExtension = "MongoRepository<" + className + ", " + idType + ">";
+            imports.add("org.springframework.data.mongodb.repository.MongoRepository");
+        } else {
+            throw new GenerationException("Error: Model class '" + modelName + "' does not have @Entity or @Document annotation");
+        }
+
+        // Slices are read without the count query of a Page, keyset pages start after the last id of the previous one
+        GeneratorOptions.Pagination pagination = GeneratorOptions.pagination();
+        if (reactive) {
+            write(layout, model, repositoryFile, repositoryExtension, imports, reactiveMethods(model, imports, pagination), false);
+            return;
+        }
+        List<JavaSource.Field> projection = DtoGenerator.projection(layout, model);
+        if (pagination != GeneratorOptions.Pagination.PAGE || projection != null) {
+            imports.add("org.springframework.data.domain.Pageable");
+            imports.add(pagination == GeneratorOptions.Pagination.PAGE ? "org.springframework.data.domain.Page" : "org.springframework.data.domain.Slice");
+        }
+
+        // The reads the services map to responses load the relations those responses read in the same query
+        List<String> graph = jpa && GeneratorOptions.fetchGraphs() ? fetchGraph(layout, model, "", new HashSet<>()) : List.of();
+        String entityGraph = "";
+        String byIdGraph = "";
+        if (!graph.isEmpty()) {
+            imports.add("org.springframework.data.jpa.repository.EntityGraph");
+            entityGraph = "    @EntityGraph(attributePaths = {\"" + String.join("\", \"", graph) + "\"})\n";
+            byIdGraph = "    @EntityGraph(attributePaths = {\"" + String.join("\", \"", withEager(layout, model, "", graph, new HashSet<>())) + "\"})\n";
+        }
+
+        StringBuilder methods = new StringBuilder();
+        if (!graph.isEmpty()) {
+            imports.add("java.util.Optional");
+            methods.append("    @Override\n").append(byIdGraph);
+            methods.append("    Optional<").append(className).append("> findById(").append(idType).append(" id);\n");
+            methods.append("\n");
+            if (pagination == GeneratorOptions.Pagination.PAGE) {
+                imports.add("org.springframework.data.domain.Page");
+                imports.add("org.springframework.data.domain.Pageable");
+                methods.append("    @Override\n").append(entityGraph);
+                methods.append("    Page<").append(className).append("> findAll(Pageable pageable);\n");
+            }
+        }
+        if (pagination != GeneratorOptions.Pagination.PAGE) {
+            methods.append(entityGraph);
+            methods.append("    Slice<").append(className).append("> findAllBy(Pageable pageable);\n");
+        }
+        if (pagination == GeneratorOptions.Pagination.KEYSET) {
+            methods.append("\n");
+            methods.append(entityGraph);
+            methods.append("    Slice<").append(className).append("> findBy").append(Names.capitalize(model.idName())).append("GreaterThan(")
+                    .append(idType).append(" ").append(model.idName()).append(", Pageable pageable);\n");
+        }
+        if (projection != null) appendProjections(methods, imports, layout, model, projection, pagination);
+        if (jpa && GeneratorOptions.references()) {
+            List<ServiceGenerator.Relation> relations = ServiceGenerator.relations(layout.dtoMapper(modelName));
+            List<ModelDescriptor> related = ServiceGenerator.relatedModels(layout, model, relations);
+            if (related != null && !related.isEmpty()) appendRelatedCounts(methods, imports, model, relations, related);
+        }
+        if (GeneratorOptions.export()) {
+            // The export reads from a cursor in batches of the fetch size, never the whole table at once
+            if (!methods.isEmpty()) methods.append("\n");
+            if (jpa) {
+                imports.add("jakarta.persistence.QueryHint");
+                imports.add("org.springframework.data.jpa.repository.QueryHints");
+                methods.append("    @QueryHints(@QueryHint(name = \"org.hibernate.fetchSize\", value = \"").append(EXPORT_BATCH).append("\"))\n");
+                methods.append(entityGraph);
+            } else {
+                imports.add("org.springframework.data.mongodb.repository.Meta");
+                methods.append("    @Meta(cursorBatchSize = ").append(EXPORT_BATCH).append(")\n");
+            }
+            imports.add("java.util.stream.Stream");
+            methods.append("    Stream<").append(className).append("> streamAllBy();\n");
+        }
+        write(layout, model, repositoryFile, repositoryExtension, imports, methods, projection != null);
+    }
+
+    private static void write(ModuleLayout layout, ModelDescriptor model, Path repositoryFile, String repositoryExtension,
+                              Set<String> imports, StringBuilder methods, boolean projection) {
+        String className = model.className();
+        String modelName = model.modelName();
+        StringBuilder out = new StringBuilder(512 + methods.length());
+        out.append("package ").append(layout.packageOf(repositoryFile.getParent())).append(";\n");
+        out.append("\n");
+        if (projection) out.append("import ").append(layout.basePackage()).append(".dto.response.").append(modelName).append("DtoResponse;\n");
+        out.append("import ").append(layout.basePackage()).append(".model.").append(className).append(";\n");
+        for (String type : imports) {
+            if (!type.startsWith("java.")) out.append("import ").append(type).append(";\n");
+        }
+        if (imports.stream().anyMatch(type -> type.startsWith("java."))) {
+            out.append("\n");
+            for (String type : imports) {
+                if (type.startsWith("java.")) out.append("import ").append(type).append(";\n");
+            }
+        }
+        out.append("\n");
+        out.append("public interface ").append(modelName).append("Repository extends ").append(repositoryExtension).append(" {\n");
+        out.append("\n");
+        out.append(methods);
+        out.append("}\n");
+        Output.write(repositoryFile, out);
+    }
+
+    // Reactive repositories have no Page or Slice, every page is a Flux limited by the Pageable and the count is a query of its own
+    private static StringBuilder reactiveMethods(ModelDescriptor model, Set<String> imports, GeneratorOptions.Pagination pagination) {
+        String className = model.className();
+        imports.add("org.springframework.data.domain.Pageable");
+        imports.add("reactor.core.publisher.Flux");
+        StringBuilder methods = new StringBuilder();
+        methods.append("    Flux<").append(className).append("> findAllBy(Pageable pageable);\n");
+        if (pagination == GeneratorOptions.Pagination.KEYSET) {
+            methods.append("\n");
+            methods.append("    Flux<").append(className).append("> findBy").append(Names.capitalize(model.idName())).append("GreaterThan(")
+                    .append(model.idType()).append(" ").append(model.idName()).append(", Pageable pageable);\n");
+        }
+        return methods;
+    }
+
+    // Attribute paths of the relations the response of the model reads, followed into the responses of the related models.
+    // Collections are left out, fetching them with a page would page in memory
+    private static List<String> fetchGraph(ModuleLayout layout, ModelDescriptor model, String prefix, Set<String> visited) {
+        List<String> paths = new ArrayList<>();
+        Path responseFile = layout.dtoResponse(model.modelName());
+        if (!visited.add(model.className()) || !Manifest.exists(responseFile)) return paths;
+        JavaSource response = JavaSource.read(responseFile);
+        for (JavaSource.Field field : model.fields()) {
+            boolean copied = MapperGenerator.copiedToResponse(response, field);
+            if (!copied && MapperGenerator.nestedResponse(response, field).isEmpty()) continue;
+            ModelDescriptor related = layout.model(field.type());
+            if (related == null) continue;
+            paths.add(prefix + field.name());
+            if (!copied) paths.addAll(fetchGraph(layout, related, prefix + field.name() + ".", visited));
+        }
+        visited.remove(model.className());
+        return paths;
+    }
+
+    // The reference writes of the service check every related entity, and on update the entity itself, with one of these
+    // counts: a join of primary key lookups that is 1 when all of them exist and 0 when one is missing
+    private static void appendRelatedCounts(StringBuilder out, Set<String> imports, ModelDescriptor model,
+                                            List<ServiceGenerator.Relation> relations, List<ModelDescriptor> related) {
+        imports.add("org.springframework.data.jpa.repository.Query");
+        imports.add("org.springframework.data.repository.query.Param");
+        StringBuilder from = new StringBuilder();
+        StringBuilder where = new StringBuilder();
+        StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < relations.size(); i++) {
+            String name = Names.decapitalize(relations.get(i).setter());
+            from.append(", ").append(related.get(i).className()).append(" r").append(i);
+            where.append(" and r").append(i).append(".").append(related.get(i).idName()).append(" = :").append(name);
+            parameters.append(", @Param(\"").append(name).append("\") ").append(related.get(i).idType()).append(" ").append(name);
+        }
+
+        if (!out.isEmpty()) out.append("\n");
+        out.append("    @Query(\"select count(r0) from ").append(from.substring(2)).append(" where ").append(where.substring(5)).append("\")\n");
+        out.append("    long countRelated(").append(parameters.substring(2)).append(");\n");
+        out.append("\n");
+        out.append("    @Query(\"select count(e) from ").append(model.className()).append(" e").append(from).append(" where e.")
+                .append(model.idName()).append(" = :id").append(where).append("\")\n");
+        out.append("    long countWithRelated(@Param(\"id\") ").append(model.idType()).append(" id").append(parameters).append(");\n");
+    }
+
+    // The graph of findById plus the EAGER associations of every entity it loads. After a graph query Hibernate still reads
+    // those with a select each, for a single entity they join into the same statement. A to-one back to a model on the path
+    // is left out, it points to an entity already loaded, a collection back to it is still read and joined
+    private static List<String> withEager(ModuleLayout layout, ModelDescriptor model, String prefix, List<String> graph, Set<String> visited) {
+        List<String> paths = new ArrayList<>();
+        visited.add(model.className());
+        for (JavaSource.Field field : model.fields()) {
+            String path = prefix + field.name();
+            String annotations = model.annotations(field);
+            boolean collection = Names.isCollection(field.type());
+            boolean eager = collection ? annotations.contains("FetchType.EAGER")
+                    : (annotations.contains("@ManyToOne") || annotations.contains("@OneToOne")) && !annotations.contains("FetchType.LAZY");
+            if (!graph.contains(path) && !eager) continue;
+            ModelDescriptor related = layout.model(ModelLinter.elementType(field.type()));
+            boolean loaded = related != null && visited.contains(related.className());
+            if (loaded && !collection && !graph.contains(path)) continue;
+            paths.add(path);
+            if (related != null && !loaded) paths.addAll(withEager(layout, related, path + ".", graph, visited));
+        }
+        visited.remove(model.className());
+        return paths;
+    }
+
+    // Queries that fill the response DTO from the selected columns: a constructor expression for JPA, the response's fields for Mongo
+    private static void appendProjections(StringBuilder out, Set<String> imports, ModuleLayout layout, ModelDescriptor model,
+                                          List<JavaSource.Field> fields, GeneratorOptions.Pagination pagination) {
+        String className = model.className();
+        String idType = model.idType();
+        String response = model.modelName() + "DtoResponse";
+        String pageType = pagination == GeneratorOptions.Pagination.PAGE ? "Page" : "Slice";
+        imports.add("java.util.Optional");
+
+        String byId;
+        String all;
+        String afterId;
+        String extra;
+        if (model.flavor() == ModelDescriptor.Flavor.JPA) {
+            imports.add("org.springframework.data.jpa.repository.Query");
+            imports.add("org.springframework.data.repository.query.Param");
+            StringBuilder select = new StringBuilder("select new ").append(layout.basePackage()).append(".dto.response.").append(response).append("(");
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) select.append(", ");
+                select.append("e.").append(fields.get(i).name());
+            }
+            select.append(") from ").append(className).append(" e");
+            String id = "e." + model.idName();
+            byId = "@Query(\"" + select + " where " + id + " = :id\")";
+            all = pagination == GeneratorOptions.Pagination.PAGE
+                    ? "@Query(value = \"" + select + "\", countQuery = \"select count(e) from " + className + " e\")"
+                    : "@Query(\"" + select + "\")";
+            afterId = "@Query(\"" + select + " where " + id + " > :id\")";
+            extra = "@Param(\"id\") ";
+        } else {
+            imports.add("org.springframework.data.mongodb.repository.Query");
+            StringBuilder projected = new StringBuilder("{ ");
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) projected.append(", ");
+                String name = fields.get(i).name();
+                projected.append("'").append(name.equals(model.idName()) ? "_id" : name).append("': 1");
+            }
+            projected.append(" }");
+            byId = "@Query(value = \"{ '_id': ?0 }\", fields = \"" + projected + "\")";
+            all = "@Query(value = \"{}\", fields = \"" + projected + "\")";
+            afterId = "@Query(value = \"{ '_id': { '$gt': ?0 } }\", fields = \"" + projected + "\")";
+            extra = "";
+        }
+
+        if (!out.isEmpty()) out.append("\n");
+        out.append("    ").append(byId).append("\n");
+        out.append("    Optional<").append(response).append("> findResponseById(").append(extra).append(idType).append(" id);\n");
+        out.append("\n");
+        out.append("    ").append(all).append("\n");
+        out.append("    ").append(pageType).append("<").append(response).append("> findAllResponses(Pageable pageable);\n");
+        if (pagination == GeneratorOptions.Pagination.KEYSET) {
+            out.append("\n");
+            out.append("    ").append(afterId).append("\n");
+            out.append("    Slice<").append(response).append("> findResponsesByIdGreaterThan(").append(extra).append(idType).append(" id, Pageable pageable);\n");
+        }
+    }
+}
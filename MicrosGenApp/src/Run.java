@@ -1,27 +1,107 @@
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class Run {
 
-    public static boolean generateDependencies;
-    public static void runScript(String[] scriptPath, JLabel label, String directory, String runCommand, String SCRIPT_PATH, String model){
+    public static boolean useScripts;
+
+    // Events go to the listener and the run log, the listener is called from background threads.
+    // Returns the timing of an engine run, null for the scripts
+    public static RunMetrics run(GenerateAction action, String[] scriptPath, JLabel label, String directory, String runCommand, String SCRIPT_PATH, String model, Consumer<ProgressEvent> listener, RunLog log){
+        Consumer<ProgressEvent> logged = event -> {
+            log.add(event.message());
+            listener.accept(event);
+        };
+        RunMetrics metrics = null;
+        if (useScripts) {
+            boolean generated = action == GenerateAction.PIPELINE
+                    ? runScripts(scriptPath, label, directory, runCommand, SCRIPT_PATH, model, logged)
+                    : runScript(scriptPath, label, directory, runCommand, SCRIPT_PATH, model, logged);
+            if (generated && DependencyGenerator.enabled()) runDependencyScript(scriptPath, label, directory, runCommand, SCRIPT_PATH, logged);
+        } else {
+            metrics = new RunMetrics(action.name(), directory);
+            runEngine(action, scriptPath, label, directory, model, logged, metrics);
+            log.add("Timing " + metrics.summary());
+            log.report(metrics.json());
+        }
+        log.add(label.getText().replaceAll("<[^>]+>", " ").strip());
+        return metrics;
+    }
+
+    public static void runEngine(GenerateAction action, String[] scriptPath, JLabel label, String directory, String model, Consumer<ProgressEvent> listener, RunMetrics metrics){
         try {
-            String[] command = new String[]{runCommand, SCRIPT_PATH+ File.separator+scriptPath[0], model, directory};
+            GenerationReport report = GenerationEngine.run(action, directory, model, listener, metrics);
+            label.setForeground(new Color(0, 160, 0));
+            if (report.edited().isEmpty()) {
+                label.setText(scriptPath[1]);
+            } else {
+                // Hand-edited outputs are kept, list them so they can be merged manually
+                label.setText("<html>" + scriptPath[1] + "<br>Kept " + report.edited().size() + " edited file(s): "
+                        + report.edited().stream().map(path -> path.substring(path.lastIndexOf('/') + 1)).collect(Collectors.joining(", ")) + "</html>");
+            }
+        } catch (RuntimeException ex) {
+            if (!(ex instanceof GenerationException)) ex.printStackTrace();
+            for (Throwable failure : ex.getSuppressed()) {
+                if (!(failure instanceof GenerationException)) failure.printStackTrace();
+            }
+            label.setForeground(new Color(160, 0, 0));
+            label.setText("<html>Failed execution with status:<br>" + ex.getMessage().replace("\n", "<br>") + "</html>");
+        }
+    }
+
+    // The scripts share no state, so the pipeline runs them one after another and stops at the first failure
+    public static boolean runScripts(String[] scriptPath, JLabel label, String directory, String runCommand, String SCRIPT_PATH, String model, Consumer<ProgressEvent> listener){
+        for (GenerateAction stage : GenerationEngine.pipeline().keySet()) {
+            listener.accept(ProgressEvent.output("Stage " + stage));
+            if (!runScript(defineScriptPath(stage, model), label, directory, runCommand, SCRIPT_PATH, model, listener)) return false;
+        }
+        label.setText(scriptPath[1]);
+        return true;
+    }
+
+    public static boolean runScript(String[] scriptPath, JLabel label, String directory, String runCommand, String SCRIPT_PATH, String model, Consumer<ProgressEvent> listener){
+        return runProcess(new String[]{runCommand, SCRIPT_PATH+ File.separator+scriptPath[0], model, directory}, scriptPath, label, listener);
+    }
+
+    // The engine merges the pom itself, the scripts leave it to dependency-generator.sh. Like the engine, modules
+    // without a pom.xml are left as they are
+    public static boolean runDependencyScript(String[] scriptPath, JLabel label, String directory, String runCommand, String SCRIPT_PATH, Consumer<ProgressEvent> listener){
+        if (!new File(directory, "pom.xml").isFile()) return true;
+        listener.accept(ProgressEvent.output("Stage dependencies"));
+        List<String> command = new ArrayList<>(List.of(runCommand, SCRIPT_PATH + File.separator + "dependency-generator.sh", directory));
+        command.addAll(DependencyGenerator.scriptArguments());
+        return runProcess(command.toArray(String[]::new), scriptPath, label, listener);
+    }
+
+    private static boolean runProcess(String[] command, String[] scriptPath, JLabel label, Consumer<ProgressEvent> listener){
+        try {
+            FileChecker.awaitTempFiles();
             ProcessBuilder pb = new ProcessBuilder(command);
             Process p = pb.start();
-            int exitCode = p.waitFor();
 
-            InputStream inputStream = p.getInputStream();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            String line;
+            // Both pipes are read while the script runs, a full stderr buffer would block it otherwise
+            AtomicReference<String> firstError = new AtomicReference<>();
+            Thread errorReader = new Thread(() -> firstError.set(drain(p.getErrorStream(), "[stderr] ", listener)), "script-stderr");
+            errorReader.setDaemon(true);
+            errorReader.start();
+            String line = drain(p.getInputStream(), "", listener);
+            int exitCode = p.waitFor();
+            errorReader.join();
 
             if (exitCode == 0) {
                 label.setText(scriptPath[1]);
                 label.setForeground(new Color(0, 160, 0));
+                return true;
             } else {
                 label.setForeground(new Color(160, 0, 0));
-                String cause = (line = reader.readLine()) != null ? ":<br>"+line : " code:<br>"+exitCode;
+                if (line == null) line = firstError.get();
+                String cause = line != null ? ":<br>"+line : " code:<br>"+exitCode;
                 label.setText("<html>Failed execution with status" + cause+"</html>");
             }
         } catch (IOException ex) {
@@ -29,6 +109,22 @@ public class Run {
         } catch (InterruptedException ex) {
             throw new RuntimeException(ex);
         }
+        return false;
+    }
+
+    // Publishes every line and returns the first one, or null when there was no output
+    private static String drain(InputStream inputStream, String prefix, Consumer<ProgressEvent> listener) {
+        String first = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (first == null) first = line;
+                listener.accept(ProgressEvent.output(prefix + line));
+            }
+        } catch (IOException ex) {
+            listener.accept(ProgressEvent.output(prefix + ex.getMessage()));
+        }
+        return first;
     }
 
     public static String[] defineScriptPath(GenerateAction action, String model){
@@ -57,6 +153,9 @@ public class Run {
             case GenerateAction.REPOSITORY -> {
                 return new String[]{"repository-generator.sh", "Repository layer for /"+model+" generated successfully!", "Generating repository layer for /"+model+"..."};
             }
+            case GenerateAction.PIPELINE -> {
+                return new String[]{"", "Whole service for /"+model+" generated successfully!", "Generating whole service for /"+model+"..."};
+            }
             default -> {
                 return new String[]{"", "Error occurred", "Error occurred"};
             }
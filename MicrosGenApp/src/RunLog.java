@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Full log of one run, filled from several threads and saved to SCRIPT_PATH/logs with its JSON report
+public final class RunLog {
+    private static final int KEPT_LOGS = 20;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final DateTimeFormatter LINE_TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private final String title;
+    private final StringBuilder text = new StringBuilder();
+    private volatile String report;
+
+    public RunLog(String title) {
+        this.title = title;
+        add(title);
+    }
+
+    public synchronized void add(String line) {
+        text.append(LocalTime.now().format(LINE_TIME)).append(' ').append(line).append('\n');
+    }
+
+    public synchronized String text() {
+        return text.toString();
+    }
+
+    // Saved next to the log with the same name and a .json extension
+    public void report(String json) {
+        report = json;
+    }
+
+    // Saves the log and removes the oldest ones, returns null when it cannot be written
+    public Path save(String directory) {
+        Path logs = Path.of(directory, "logs");
+        String name = LocalDateTime.now().format(FILE_TIME) + "-" + title.replaceAll("[^A-Za-z0-9_-]+", "_") + ".log";
+        try {
+            Files.createDirectories(logs);
+            Path file = Files.writeString(logs.resolve(name), text(), StandardCharsets.UTF_8);
+            if (report != null) Files.writeString(logs.resolve(Names.stripSuffix(name, ".log") + ".json"), report, StandardCharsets.UTF_8);
+            List<Path> saved = new ArrayList<>();
+            try (Stream<Path> paths = Files.list(logs)) {
+                paths.filter(path -> path.getFileName().toString().endsWith(".log")).forEach(saved::add);
+            }
+            saved.sort(Comparator.comparing(path -> path.getFileName().toString()));
+            for (int i = 0; i < saved.size() - KEPT_LOGS; i++) {
+                Files.deleteIfExists(saved.get(i));
+                Files.deleteIfExists(saved.get(i).resolveSibling(Names.stripSuffix(saved.get(i).getFileName().toString(), ".log") + ".json"));
+            }
+            return file;
+        } catch (IOException e) {
+            System.err.println("Error while saving run log: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Where the time of one run went, filled from every thread of the run and also emitted as JFR events
+public class RunMetrics {
+    public enum Phase {
+        DISCOVERY,
+        TEMPLATES,
+        PARSING,
+        CHECKING,
+        RENDERING,
+        WRITING
+    }
+
+    @Name("microsgen.Run")
+    @Label("Generation Run")
+    @Category("MicrosGen")
+    static class RunEvent extends Event {
+        @Label("Action")
+        String action;
+        @Label("Module")
+        String module;
+        @Label("Models")
+        int models;
+        @Label("Files Written")
+        long files;
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("microsgen.Step")
+    @Label("Generation Step")
+    @Category("MicrosGen")
+    static class StepEvent extends Event {
+        @Label("Step")
+        String step;
+        @Label("Model")
+        String model;
+    }
+
+    @Name("microsgen.Startup")
+    @Label("Window Shown")
+    @Category("MicrosGen")
+    static class StartupEvent extends Event {
+        @Label("Since Launch")
+        @Timespan(Timespan.MILLISECONDS)
+        long sinceLaunch;
+    }
+
+    // Time from the start of the JVM to the first window, recorded by -XX:StartFlightRecording
+    public static void windowShown() {
+        StartupEvent event = new StartupEvent();
+        event.sinceLaunch = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        event.commit();
+    }
+
+    // One running step, closing it books its own time as rendering of its kind
+    public class Step implements AutoCloseable {
+        private final String kind;
+        private final RunMetrics previous = current.get();
+        private final StepEvent event = new StepEvent();
+        private final long mark;
+
+        private Step(String kind, String model) {
+            this.kind = kind;
+            current.set(RunMetrics.this);
+            event.step = kind;
+            event.model = model;
+            event.begin();
+            mark = mark();
+        }
+
+        @Override
+        public void close() {
+            long spent = spent(mark);
+            nanos.get(Phase.RENDERING).add(spent);
+            rendering.computeIfAbsent(kind, key -> new LongAdder()).add(spent);
+            event.commit();
+            if (previous != null) current.set(previous);
+            else current.remove();
+        }
+    }
+
+    // Metrics of the run on the current thread, null outside of a run
+    private static final ThreadLocal<RunMetrics> current = new ThreadLocal<>();
+    // Time the current thread spent in finished phases, the enclosing phase subtracts it from its own
+    private static final ThreadLocal<long[]> nested = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final String action;
+    private final String module;
+    private final long start = System.nanoTime();
+    private final RunEvent event = new RunEvent();
+    private final Map<Phase, LongAdder> nanos = new EnumMap<>(Phase.class);
+    private final Map<String, LongAdder> rendering = new ConcurrentHashMap<>();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private volatile int models;
+    private volatile long totalNanos = -1;
+
+    public RunMetrics(String action, String module) {
+        this.action = action;
+        this.module = module;
+        for (Phase phase : Phase.values()) nanos.put(phase, new LongAdder());
+        event.begin();
+    }
+
+    // Makes this the metrics of the current thread, until finish
+    public void attach() {
+        current.set(this);
+    }
+
+    public Step step(String kind, String model) {
+        return new Step(kind, model);
+    }
+
+    public void models(int count) {
+        models = count;
+    }
+
+    public void finish() {
+        if (current.get() == this) current.remove();
+        if (totalNanos >= 0) return;
+        totalNanos = System.nanoTime() - start;
+        event.action = action;
+        event.module = module;
+        event.models = models;
+        event.files = files.sum();
+        event.bytes = bytes.sum();
+        event.commit();
+    }
+
+    // Start of a phase on the current thread, pass it to record when the phase is over
+    public static long mark() {
+        return System.nanoTime() - nested.get()[0];
+    }
+
+    public static void record(Phase phase, long mark) {
+        long spent = spent(mark);
+        RunMetrics metrics = current.get();
+        if (metrics != null) metrics.nanos.get(phase).add(spent);
+    }
+
+    public static void wrote(long mark, int size) {
+        record(Phase.WRITING, mark);
+        RunMetrics metrics = current.get();
+        if (metrics == null) return;
+        metrics.files.increment();
+        metrics.bytes.add(size);
+    }
+
+    // Own time of a phase, without the phases that finished inside it
+    private static long spent(long mark) {
+        long[] inner = nested.get();
+        long spent = System.nanoTime() - inner[0] - mark;
+        inner[0] += spent;
+        return spent;
+    }
+
+    public long millis(Phase phase) {
+        return nanos.get(phase).sum() / 1_000_000;
+    }
+
+    public long totalMillis() {
+        return (totalNanos >= 0 ? totalNanos : System.nanoTime() - start) / 1_000_000;
+    }
+
+    // One line for the UI, the phases that took at least a millisecond
+    public String summary() {
+        StringBuilder out = new StringBuilder().append(totalMillis()).append(" ms");
+        String separator = ": ";
+        for (Phase phase : Phase.values()) {
+            long millis = millis(phase);
+            if (millis == 0) continue;
+            out.append(separator).append(phase.name().toLowerCase(Locale.ROOT)).append(' ').append(millis).append(" ms");
+            separator = ", ";
+        }
+        return out.append(" | ").append(models).append(" models, ").append(files.sum()).append(" files, ")
+                .append(bytes.sum() / 1024).append(" KB").toString();
+    }
+
+    public String json() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"action\":").append(Json.string(action));
+        out.append(",\"module\":").append(Json.string(module));
+        out.append(",\"totalMs\":").append(totalMillis());
+        out.append(",\"models\":").append(models);
+        out.append(",\"filesWritten\":").append(files.sum());
+        out.append(",\"bytesWritten\":").append(bytes.sum());
+        out.append(",\"phasesMs\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase != Phase.DISCOVERY) out.append(",");
+            out.append(Json.string(phase.name().toLowerCase(Locale.ROOT))).append(":").append(millis(phase));
+        }
+        out.append("},\"renderingMs\":{");
+        String separator = "";
+        for (Map.Entry<String, LongAdder> kind : new TreeMap<>(rendering).entrySet()) {
+            out.append(separator).append(Json.string(kind.getKey())).append(":").append(kind.getValue().sum() / 1_000_000);
+            separator = ",";
+        }
+        return out.append("}}").toString();
+    }
+}
@@ -0,0 +1,663 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class ServiceGenerator {
+    private static final Set<String> READS = Set.of("getById", "getAll", "getResponseById", "getAllResponses");
+
+    // A model field that the mapper fills with a new related object, e.g. model.setCustomer(customer)
+    public record Relation(String setter, String service) {
+        public String serviceName() {
+            return Names.decapitalize(service);
+        }
+    }
+
+    public static Path directory(ModuleLayout layout) {
+        return layout.baseDir().resolve("service");
+    }
+
+    public static void generate(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String idType = model.idType();
+        String basePackage = layout.basePackage();
+        Path serviceFile = directory(layout).resolve(modelName + "Service.java");
+        List<Relation> relations = relations(layout.dtoMapper(modelName));
+        if (GeneratorOptions.reactive()) {
+            generateReactive(layout, model, serviceFile, relations);
+            return;
+        }
+        // Writes run in one transaction that checks the related entities, and on update the entity itself, with one count
+        // query and then only sets references to them. save merges the entity, which reads its row once
+        boolean references = model.flavor() == ModelDescriptor.Flavor.JPA && GeneratorOptions.references()
+                && relatedModels(layout, model, relations) != null;
+        // Every JPA service hands out references, the services of the models pointing to it call them whatever its own relations
+        boolean referenceLookup = model.flavor() == ModelDescriptor.Flavor.JPA && GeneratorOptions.references();
+        String lookup = references ? "getReferenceById" : "getById";
+        // Entities cached by id in a cache named after the model, see ConfigGenerator
+        boolean cache = GeneratorOptions.cache();
+        String cacheAnnotation = "(cacheNames = \"" + lowercaseModelName + "\", key = \"#id\")\n";
+        // Lists saved with saveAll in one transaction, Mongo has no transaction manager by default
+        boolean bulk = GeneratorOptions.bulk();
+        boolean transactional = references || bulk && model.flavor() == ModelDescriptor.Flavor.JPA;
+        GeneratorOptions.Pagination pagination = GeneratorOptions.pagination();
+        GeneratorOptions.Logging logging = GeneratorOptions.logging();
+        boolean projection = DtoGenerator.projection(layout, model) != null;
+        // The responses of the projections have their own cache, the writes evict them with the entity
+        String evictAnnotation = projection
+                ? "(cacheNames = {\"" + lowercaseModelName + "\", \"" + lowercaseModelName + "Response\"}, key = \"#id\")\n" : cacheAnnotation;
+        // Two or more related documents are read at the same time on the lookup executor of the virtual-threads profile.
+        // JPA lookups stay on the calling thread, in its transaction and persistence context, references check them in one query
+        boolean parallelLookups = model.flavor() == ModelDescriptor.Flavor.MONGO && relations.size() > 1 && GeneratorOptions.virtualThreads();
+        // Rows streamed from the repository and mapped one at a time, JPA clears what it read in batches
+        boolean export = GeneratorOptions.export() && Manifest.exists(layout.dtoMapper(modelName)) && Manifest.exists(layout.dtoResponse(modelName));
+        boolean exportJpa = export && model.flavor() == ModelDescriptor.Flavor.JPA;
+
+        StringBuilder foreignServices = new StringBuilder();
+        for (Relation relation : relations) {
+            String relatedId = references ? relatedId(relation) : lowercaseModelName + ".get" + relation.setter() + "().getId()";
+            foreignServices.append("        ").append(lowercaseModelName).append(".set").append(relation.setter())
+                    .append("(").append(relation.serviceName()).append(".").append(lookup).append("(").append(relatedId).append("));\n");
+        }
+        if (relations.isEmpty()) foreignServices.append("\n");
+        if (parallelLookups) {
+            foreignServices.setLength(0);
+            foreignServices.append("        setRelations(").append(lowercaseModelName).append(");\n");
+        }
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(layout.packageOf(serviceFile.getParent())).append(";\n");
+        out.append("\n");
+        if (export) out.append("import ").append(basePackage).append(".dto.mapper.").append(modelName).append("DtoMapper;\n");
+        if (projection || export) out.append("import ").append(basePackage).append(".dto.response.").append(modelName).append("DtoResponse;\n");
+        out.append("import ").append(basePackage).append(".exception.EntityNotFoundException;\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("import ").append(basePackage).append(".repository.").append(modelName).append("Repository;\n");
+        if (GeneratorOptions.metrics()) out.append("import io.micrometer.core.annotation.Timed;\n");
+        if (exportJpa) {
+            out.append("import jakarta.persistence.EntityManager;\n");
+            out.append("import jakarta.persistence.PersistenceContext;\n");
+        }
+        if (logging != GeneratorOptions.Logging.OFF) out.append("import lombok.extern.slf4j.Slf4j;\n");
+        if (parallelLookups) {
+            out.append("import org.springframework.beans.factory.annotation.Autowired;\n");
+            out.append("import org.springframework.beans.factory.annotation.Qualifier;\n");
+        }
+        if (cache) {
+            out.append("import org.springframework.cache.annotation.CacheEvict;\n");
+            if (!references) out.append("import org.springframework.cache.annotation.CachePut;\n");
+            out.append("import org.springframework.cache.annotation.Cacheable;\n");
+        }
+        if (pagination == GeneratorOptions.Pagination.PAGE) out.append("import org.springframework.data.domain.Page;\n");
+        if (pagination == GeneratorOptions.Pagination.KEYSET) out.append("import org.springframework.data.domain.PageRequest;\n");
+        out.append("import org.springframework.data.domain.Pageable;\n");
+        if (pagination != GeneratorOptions.Pagination.PAGE) out.append("import org.springframework.data.domain.Slice;\n");
+        if (pagination == GeneratorOptions.Pagination.KEYSET) out.append("import org.springframework.data.domain.Sort;\n");
+        out.append("import org.springframework.stereotype.Service;\n");
+        if (transactional || exportJpa) out.append("import org.springframework.transaction.annotation.Transactional;\n");
+        if (export) out.append("import org.springframework.util.function.ThrowingConsumer;\n");
+        out.append("\n");
+        Set<String> javaImports = new TreeSet<>();
+        if (export) javaImports.add("java.util.stream.Stream");
+        if (exportJpa) javaImports.add("java.util.Iterator");
+        if (bulk) {
+            javaImports.addAll(List.of("java.util.ArrayList", "java.util.Collection", "java.util.HashMap", "java.util.List", "java.util.Map"));
+            if (!relations.isEmpty()) javaImports.add("java.util.stream.Collectors");
+        }
+        if (parallelLookups) {
+            javaImports.addAll(List.of("java.util.concurrent.CompletableFuture", "java.util.concurrent.CompletionException",
+                    "java.util.concurrent.ExecutorService"));
+        }
+        if (!javaImports.isEmpty()) {
+            javaImports.forEach(javaImport -> out.append("import ").append(javaImport).append(";\n"));
+            out.append("\n");
+        }
+
+        if (logging != GeneratorOptions.Logging.OFF) out.append("@Slf4j\n");
+        out.append("@Service\n");
+        out.append("public class ").append(modelName).append("Service {\n");
+        out.append("    private final ").append(modelName).append("Repository ").append(lowercaseModelName).append("Repository;\n");
+        for (Relation relation : relations) {
+            out.append("    private final ").append(relation.service()).append(" ").append(relation.serviceName()).append(";\n");
+        }
+        if (exportJpa) {
+            out.append("    @PersistenceContext\n");
+            out.append("    private EntityManager entityManager;\n");
+        }
+        if (parallelLookups) {
+            // The bean of LookupExecutorConfig, null without the profile and in tests that construct the service
+            out.append("    @Autowired(required = false)\n");
+            out.append("    @Qualifier(\"lookupExecutor\")\n");
+            out.append("    private ExecutorService lookupExecutor;\n");
+        }
+        out.append("\n");
+
+        // Every related service is prepended to the constructor, so the last relation comes first
+        out.append("    public ").append(modelName).append("Service(");
+        for (int i = relations.size() - 1; i >= 0; i--) {
+            out.append(relations.get(i).service()).append(" ").append(relations.get(i).serviceName()).append(", ");
+        }
+        out.append(modelName).append("Repository ").append(lowercaseModelName).append("Repository) {\n");
+        for (int i = relations.size() - 1; i >= 0; i--) {
+            String serviceName = relations.get(i).serviceName();
+            out.append("        this.").append(serviceName).append(" = ").append(serviceName).append(";\n");
+        }
+        out.append("        this.").append(lowercaseModelName).append("Repository = ").append(lowercaseModelName).append("Repository;\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        if (references) out.append("    @Transactional\n");
+        appendTimed(out, lowercaseModelName, "create");
+        out.append("    public ").append(className).append(" create(").append(className).append(" ").append(lowercaseModelName).append(") {\n");
+        if (logging == GeneratorOptions.Logging.FULL) appendLog(out, className + " create: {}", lowercaseModelName);
+        if (references && !relations.isEmpty()) {
+            appendRelatedCheck(out, lowercaseModelName, relations, lowercaseModelName + "Repository.countRelated(", null);
+        }
+        // The empty line without relations only follows the log line
+        if (logging == GeneratorOptions.Logging.FULL || !relations.isEmpty()) out.append(foreignServices);
+        if (logging == GeneratorOptions.Logging.IDS) {
+            // The id is assigned by the save, the entity it was given may not have one yet
+            out.append("        ").append(className).append(" saved = ").append(lowercaseModelName).append("Repository.save(")
+                    .append(lowercaseModelName).append(");\n");
+            appendLog(out, className + " create: {}", "saved.get" + Names.capitalize(model.idName()) + "()");
+            out.append("        return saved;\n");
+        } else {
+            out.append("        return ").append(lowercaseModelName).append("Repository.save(").append(lowercaseModelName).append(");\n");
+        }
+        out.append("    }\n");
+        out.append("\n");
+
+        if (cache) out.append("    @Cacheable").append(cacheAnnotation);
+        appendTimed(out, lowercaseModelName, "getById");
+        out.append("    public ").append(className).append(" getById(").append(idType).append(" id) {\n");
+        appendLog(out, className + " get by id: {}", "id");
+        out.append("        return ").append(lowercaseModelName).append("Repository.findById(id).orElseThrow(()->new EntityNotFoundException(\"")
+                .append(modelName).append(" with id: \" + id + \" does not exist\"));\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        if (referenceLookup) {
+            out.append("    public ").append(className).append(" getReferenceById(").append(idType).append(" id) {\n");
+            appendLog(out, className + " get reference by id: {}", "id");
+            out.append("        return ").append(lowercaseModelName).append("Repository.getReferenceById(id);\n");
+            out.append("    }\n");
+            out.append("\n");
+        }
+
+        switch (pagination) {
+            case PAGE -> {
+                appendTimed(out, lowercaseModelName, "getAll");
+                out.append("    public Page<").append(className).append("> getAll(Pageable pageable) {\n");
+                appendLog(out, className + " get all: {}", "pageable");
+                out.append("        return ").append(lowercaseModelName).append("Repository.findAll(pageable);\n");
+            }
+            case SLICE -> {
+                appendTimed(out, lowercaseModelName, "getAll");
+                out.append("    public Slice<").append(className).append("> getAll(Pageable pageable) {\n");
+                appendLog(out, className + " get all: {}", "pageable");
+                out.append("        return ").append(lowercaseModelName).append("Repository.findAllBy(pageable);\n");
+            }
+            case KEYSET -> {
+                // Always the first page of the ids after the cursor, so the database seeks instead of skipping rows
+                String idName = model.idName();
+                appendTimed(out, lowercaseModelName, "getAll");
+                out.append("    public Slice<").append(className).append("> getAll(").append(idType).append(" after, int size) {\n");
+                appendLog(out, className + " get all after: {}, size: {}", "after", "size");
+                out.append("        Pageable pageable = PageRequest.of(0, size, Sort.by(\"").append(idName).append("\"));\n");
+                out.append("        if (after == null) return ").append(lowercaseModelName).append("Repository.findAllBy(pageable);\n");
+                out.append("        return ").append(lowercaseModelName).append("Repository.findBy").append(Names.capitalize(idName))
+                        .append("GreaterThan(after, pageable);\n");
+            }
+        }
+        out.append("    }\n");
+        out.append("\n");
+        if (projection) appendProjections(out, model, pagination, cache);
+
+        // The entity a reference update returns holds proxies of the related entities, so it is evicted instead of cached
+        // and the next getById caches it loaded again
+        if (cache && references) out.append("    @CacheEvict").append(evictAnnotation);
+        if (cache && !references) {
+            out.append("    @CachePut").append(cacheAnnotation);
+            if (projection) out.append("    @CacheEvict(cacheNames = \"").append(lowercaseModelName).append("Response\", key = \"#id\")\n");
+        }
+        if (references) out.append("    @Transactional\n");
+        appendTimed(out, lowercaseModelName, "updateById");
+        out.append("    public ").append(className).append(" updateById(").append(idType).append(" id, ").append(className)
+                .append(" ").append(lowercaseModelName).append(") {\n");
+        if (!references) {
+            out.append("        getById(id);\n");
+        } else if (relations.isEmpty()) {
+            out.append("        if (!").append(lowercaseModelName).append("Repository.existsById(id)) {\n");
+            out.append("            throw new EntityNotFoundException(\"").append(modelName).append(" with id: \" + id + \" does not exist\");\n");
+            out.append("        }\n");
+        } else {
+            appendRelatedCheck(out, lowercaseModelName, relations, lowercaseModelName + "Repository.countWithRelated(id, ", "getById(id);");
+        }
+        out.append("        ").append(lowercaseModelName).append(".setId(id);\n");
+        out.append(foreignServices);
+        appendLog(out, className + " update by id: {}", logging == GeneratorOptions.Logging.IDS ? "id" : lowercaseModelName);
+        out.append("        return ").append(lowercaseModelName).append("Repository.save(").append(lowercaseModelName).append(");\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        if (cache) out.append("    @CacheEvict").append(evictAnnotation);
+        appendTimed(out, lowercaseModelName, "deleteById");
+        out.append("    public Boolean deleteById(").append(idType).append(" id) {\n");
+        appendLog(out, className + " delete by id: {}", "id");
+        out.append("        ").append(lowercaseModelName).append("Repository.deleteById(id);\n");
+        out.append("        return true;\n");
+        out.append("    }\n");
+        if (bulk) appendBulk(out, model, relations, transactional, cache, projection);
+        if (export) appendExport(out, model, exportJpa);
+        if (parallelLookups) appendParallelLookups(out, model, relations);
+        out.append("}\n");
+        Output.write(serviceFile, out);
+    }
+
+    // Same operations returning Mono and Flux, nothing blocks: related entities are loaded at the same time and the
+    // page of PAGE is read together with its count
+    private static void generateReactive(ModuleLayout layout, ModelDescriptor model, Path serviceFile, List<Relation> relations) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String idType = model.idType();
+        String basePackage = layout.basePackage();
+        String repository = lowercaseModelName + "Repository";
+        GeneratorOptions.Pagination pagination = GeneratorOptions.pagination();
+        GeneratorOptions.Logging logging = GeneratorOptions.logging();
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(layout.packageOf(serviceFile.getParent())).append(";\n");
+        out.append("\n");
+        out.append("import ").append(basePackage).append(".exception.EntityNotFoundException;\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("import ").append(basePackage).append(".repository.").append(modelName).append("Repository;\n");
+        if (logging != GeneratorOptions.Logging.OFF) out.append("import lombok.extern.slf4j.Slf4j;\n");
+        if (pagination == GeneratorOptions.Pagination.PAGE) {
+            out.append("import org.springframework.data.domain.Page;\n");
+            out.append("import org.springframework.data.domain.PageImpl;\n");
+        }
+        if (pagination == GeneratorOptions.Pagination.KEYSET) out.append("import org.springframework.data.domain.PageRequest;\n");
+        out.append("import org.springframework.data.domain.Pageable;\n");
+        if (pagination == GeneratorOptions.Pagination.KEYSET) out.append("import org.springframework.data.domain.Sort;\n");
+        out.append("import org.springframework.stereotype.Service;\n");
+        if (pagination != GeneratorOptions.Pagination.PAGE) out.append("import reactor.core.publisher.Flux;\n");
+        out.append("import reactor.core.publisher.Mono;\n");
+        out.append("\n");
+
+        if (logging != GeneratorOptions.Logging.OFF) out.append("@Slf4j\n");
+        out.append("@Service\n");
+        out.append("public class ").append(modelName).append("Service {\n");
+        out.append("    private final ").append(modelName).append("Repository ").append(repository).append(";\n");
+        for (Relation relation : relations) {
+            out.append("    private final ").append(relation.service()).append(" ").append(relation.serviceName()).append(";\n");
+        }
+        out.append("\n");
+        out.append("    public ").append(modelName).append("Service(");
+        for (int i = relations.size() - 1; i >= 0; i--) {
+            out.append(relations.get(i).service()).append(" ").append(relations.get(i).serviceName()).append(", ");
+        }
+        out.append(modelName).append("Repository ").append(repository).append(") {\n");
+        for (int i = relations.size() - 1; i >= 0; i--) {
+            String serviceName = relations.get(i).serviceName();
+            out.append("        this.").append(serviceName).append(" = ").append(serviceName).append(";\n");
+        }
+        out.append("        this.").append(repository).append(" = ").append(repository).append(";\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    public Mono<").append(className).append("> create(").append(className).append(" ").append(lowercaseModelName).append(") {\n");
+        if (logging == GeneratorOptions.Logging.FULL) appendLog(out, className + " create: {}", lowercaseModelName);
+        out.append("        return ");
+        if (relations.isEmpty()) {
+            out.append(repository).append(".save(").append(lowercaseModelName).append(")");
+        } else {
+            out.append("withRelations(").append(lowercaseModelName).append(").flatMap(").append(repository).append("::save)");
+        }
+        if (logging == GeneratorOptions.Logging.IDS) {
+            // Logged once the save assigned the id, the guard as in appendLog
+            out.append("\n                .doOnNext(saved -> {\n");
+            out.append("                    if (log.isDebugEnabled()) log.debug(\"").append(className).append(" create: {}\", saved.get")
+                    .append(Names.capitalize(model.idName())).append("());\n");
+            out.append("                })");
+        }
+        out.append(";\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    public Mono<").append(className).append("> getById(").append(idType).append(" id) {\n");
+        appendLog(out, className + " get by id: {}", "id");
+        out.append("        return ").append(repository).append(".findById(id)\n");
+        out.append("                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException(\"").append(modelName)
+                .append(" with id: \" + id + \" does not exist\")));\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        switch (pagination) {
+            case PAGE -> {
+                out.append("    public Mono<Page<").append(className).append(">> getAll(Pageable pageable) {\n");
+                appendLog(out, className + " get all: {}", "pageable");
+                out.append("        return ").append(repository).append(".findAllBy(pageable).collectList()\n");
+                out.append("                .zipWith(").append(repository).append(".count(), (content, total) -> new PageImpl<>(content, pageable, total));\n");
+            }
+            case SLICE -> {
+                // The rows of the page as they arrive, without counting the table
+                out.append("    public Flux<").append(className).append("> getAll(Pageable pageable) {\n");
+                appendLog(out, className + " get all: {}", "pageable");
+                out.append("        return ").append(repository).append(".findAllBy(pageable);\n");
+            }
+            case KEYSET -> {
+                String idName = model.idName();
+                out.append("    public Flux<").append(className).append("> getAll(").append(idType).append(" after, int size) {\n");
+                appendLog(out, className + " get all after: {}, size: {}", "after", "size");
+                out.append("        Pageable pageable = PageRequest.of(0, size, Sort.by(\"").append(idName).append("\"));\n");
+                out.append("        if (after == null) return ").append(repository).append(".findAllBy(pageable);\n");
+                out.append("        return ").append(repository).append(".findBy").append(Names.capitalize(idName)).append("GreaterThan(after, pageable);\n");
+            }
+        }
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    public Mono<").append(className).append("> updateById(").append(idType).append(" id, ").append(className)
+                .append(" ").append(lowercaseModelName).append(") {\n");
+        appendLog(out, className + " update by id: {}", logging == GeneratorOptions.Logging.IDS ? "id" : lowercaseModelName);
+        out.append("        return getById(id)\n");
+        out.append("                .then(Mono.defer(() -> {\n");
+        out.append("                    ").append(lowercaseModelName).append(".setId(id);\n");
+        out.append("                    return ").append(relations.isEmpty() ? "Mono.just(" : "withRelations(").append(lowercaseModelName).append(");\n");
+        out.append("                }))\n");
+        out.append("                .flatMap(").append(repository).append("::save);\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    public Mono<Boolean> deleteById(").append(idType).append(" id) {\n");
+        appendLog(out, className + " delete by id: {}", "id");
+        out.append("        return ").append(repository).append(".deleteById(id).thenReturn(true);\n");
+        out.append("    }\n");
+
+        if (!relations.isEmpty()) {
+            out.append("\n");
+            out.append("    // Loads the related entities the ").append(lowercaseModelName).append(" refers to at the same time and sets them\n");
+            out.append("    private Mono<").append(className).append("> withRelations(").append(className).append(" ").append(lowercaseModelName).append(") {\n");
+            out.append("        return Mono.when(\n");
+            for (int i = 0; i < relations.size(); i++) {
+                Relation relation = relations.get(i);
+                out.append("                        ").append(relation.serviceName()).append(".getById(").append(lowercaseModelName)
+                        .append(".get").append(relation.setter()).append("().getId()).doOnNext(").append(lowercaseModelName)
+                        .append("::set").append(relation.setter()).append(")").append(i < relations.size() - 1 ? ",\n" : ")\n");
+            }
+            out.append("                .thenReturn(").append(lowercaseModelName).append(");\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        Output.write(serviceFile, out);
+    }
+
+    // Reads the related ids once and counts the entities in one query, see RepositoryGenerator. Only when the count is 0
+    // the entity and the related entities are looked up one by one, so the missing one ends in its own EntityNotFoundException
+    private static void appendRelatedCheck(StringBuilder out, String entity, List<Relation> relations, String count, String self) {
+        List<String> ids = new ArrayList<>();
+        for (Relation relation : relations) {
+            ids.add(relatedId(relation));
+            out.append("        var ").append(relatedId(relation)).append(" = ").append(entity).append(".get").append(relation.setter())
+                    .append("().getId();\n");
+        }
+        out.append("        if (").append(count).append(String.join(", ", ids)).append(") == 0) {\n");
+        if (self != null) out.append("            ").append(self).append("\n");
+        for (Relation relation : relations) {
+            out.append("            ").append(relation.serviceName()).append(".getById(").append(relatedId(relation)).append(");\n");
+        }
+        out.append("        }\n");
+    }
+
+    private static String relatedId(Relation relation) {
+        return Names.decapitalize(relation.setter()) + "Id";
+    }
+
+    // Models the relations point to, in the order of the relations, or null when one of them is not a JPA model
+    public static List<ModelDescriptor> relatedModels(ModuleLayout layout, ModelDescriptor model, List<Relation> relations) {
+        List<ModelDescriptor> related = new ArrayList<>();
+        for (Relation relation : relations) {
+            String name = Names.decapitalize(relation.setter());
+            JavaSource.Field field = model.fields().stream().filter(candidate -> candidate.name().equals(name)).findFirst().orElse(null);
+            ModelDescriptor relatedModel = field != null ? layout.model(field.type()) : null;
+            if (relatedModel == null || relatedModel.flavor() != ModelDescriptor.Flavor.JPA) return null;
+            related.add(relatedModel);
+        }
+        return related;
+    }
+
+    // Reads that return the response DTO selected by the repository, without loading the entity
+    private static void appendProjections(StringBuilder out, ModelDescriptor model, GeneratorOptions.Pagination pagination, boolean cache) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String idType = model.idType();
+        String response = modelName + "DtoResponse";
+        String repository = lowercaseModelName + "Repository";
+
+        if (cache) out.append("    @Cacheable(cacheNames = \"").append(lowercaseModelName).append("Response\", key = \"#id\")\n");
+        appendTimed(out, lowercaseModelName, "getResponseById");
+        out.append("    public ").append(response).append(" getResponseById(").append(idType).append(" id) {\n");
+        appendLog(out, className + " get response by id: {}", "id");
+        out.append("        return ").append(repository).append(".findResponseById(id).orElseThrow(()->new EntityNotFoundException(\"")
+                .append(modelName).append(" with id: \" + id + \" does not exist\"));\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        if (pagination == GeneratorOptions.Pagination.KEYSET) {
+            appendTimed(out, lowercaseModelName, "getAllResponses");
+            out.append("    public Slice<").append(response).append("> getAllResponses(").append(idType).append(" after, int size) {\n");
+            appendLog(out, className + " get all responses after: {}, size: {}", "after", "size");
+            out.append("        Pageable pageable = PageRequest.of(0, size, Sort.by(\"").append(model.idName()).append("\"));\n");
+            out.append("        if (after == null) return ").append(repository).append(".findAllResponses(pageable);\n");
+            out.append("        return ").append(repository).append(".findResponsesByIdGreaterThan(after, pageable);\n");
+        } else {
+            appendTimed(out, lowercaseModelName, "getAllResponses");
+            out.append("    public ").append(pagination == GeneratorOptions.Pagination.PAGE ? "Page<" : "Slice<").append(response)
+                    .append("> getAllResponses(Pageable pageable) {\n");
+            appendLog(out, className + " get all responses: {}", "pageable");
+            out.append("        return ").append(repository).append(".findAllResponses(pageable);\n");
+        }
+        out.append("    }\n");
+        out.append("\n");
+    }
+
+    // List versions of the writes: one findAllById per relation type and per list instead of one query per entity
+    private static void appendBulk(StringBuilder out, ModelDescriptor model, List<Relation> relations, boolean transactional, boolean cache, boolean projection) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String idType = model.idType();
+        String repository = lowercaseModelName + "Repository";
+        String list = lowercaseModelName + "List";
+        String cacheNames = projection ? "{\"" + lowercaseModelName + "\", \"" + lowercaseModelName + "Response\"}" : "\"" + lowercaseModelName + "\"";
+        String evictAll = "    @CacheEvict(cacheNames = " + cacheNames + ", allEntries = true)\n";
+
+        StringBuilder resolveRelations = new StringBuilder();
+        for (Relation relation : relations) {
+            String related = Names.decapitalize(relation.setter()) + "ById";
+            if (related.equals(lowercaseModelName + "ById")) related = "related" + relation.setter() + "ById";
+            String getter = lowercaseModelName + ".get" + relation.setter() + "().getId()";
+            resolveRelations.append("        var ").append(related).append(" = ").append(relation.serviceName()).append(".getAllById(")
+                    .append(list).append(".stream().map(").append(lowercaseModelName).append(" -> ").append(getter)
+                    .append(").collect(Collectors.toSet()));\n");
+            resolveRelations.append("        ").append(list).append(".forEach(").append(lowercaseModelName).append(" -> ")
+                    .append(lowercaseModelName).append(".set").append(relation.setter()).append("(").append(related)
+                    .append(".get(").append(getter).append(")));\n");
+        }
+
+        out.append("\n");
+        out.append("    public Map<").append(idType).append(", ").append(className).append("> getAllById(Collection<").append(idType).append("> ids) {\n");
+        appendLog(out, className + " get all by id: {}", "ids");
+        out.append("        Map<").append(idType).append(", ").append(className).append("> ").append(lowercaseModelName).append("ById = new HashMap<>();\n");
+        out.append("        for (").append(className).append(" ").append(lowercaseModelName).append(" : ").append(repository).append(".findAllById(ids)) {\n");
+        out.append("            ").append(lowercaseModelName).append("ById.put(").append(lowercaseModelName).append(".getId(), ").append(lowercaseModelName).append(");\n");
+        out.append("        }\n");
+        out.append("        for (").append(idType).append(" id : ids) {\n");
+        out.append("            if (!").append(lowercaseModelName).append("ById.containsKey(id)) {\n");
+        out.append("                throw new EntityNotFoundException(\"").append(modelName).append(" with id: \" + id + \" does not exist\");\n");
+        out.append("            }\n");
+        out.append("        }\n");
+        out.append("        return ").append(lowercaseModelName).append("ById;\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        if (transactional) out.append("    @Transactional\n");
+        appendTimed(out, lowercaseModelName, "createAll");
+        out.append("    public List<").append(className).append("> createAll(List<").append(className).append("> ").append(list).append(") {\n");
+        appendLog(out, className + " create all: {}", list + ".size()");
+        out.append(resolveRelations);
+        out.append("        return ").append(repository).append(".saveAll(").append(list).append(");\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        // The existence check loads every entity in one query, saveAll then merges them without reading each one again
+        if (cache) out.append(evictAll);
+        if (transactional) out.append("    @Transactional\n");
+        appendTimed(out, lowercaseModelName, "updateAll");
+        out.append("    public List<").append(className).append("> updateAll(Map<").append(idType).append(", ").append(className)
+                .append("> ").append(lowercaseModelName).append("ById) {\n");
+        appendLog(out, className + " update all by id: {}", lowercaseModelName + "ById.keySet()");
+        out.append("        getAllById(").append(lowercaseModelName).append("ById.keySet());\n");
+        out.append("        ").append(lowercaseModelName).append("ById.forEach((id, ").append(lowercaseModelName).append(") -> ")
+                .append(lowercaseModelName).append(".setId(id));\n");
+        out.append("        List<").append(className).append("> ").append(list).append(" = new ArrayList<>(").append(lowercaseModelName).append("ById.values());\n");
+        out.append(resolveRelations);
+        out.append("        return ").append(repository).append(".saveAll(").append(list).append(");\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        // One DELETE ... WHERE id IN (...) instead of a select and a delete per entity
+        if (cache) out.append(evictAll);
+        if (transactional) out.append("    @Transactional\n");
+        appendTimed(out, lowercaseModelName, "deleteAllById");
+        out.append("    public Boolean deleteAllById(List<").append(idType).append("> ids) {\n");
+        appendLog(out, className + " delete all by id: {}", "ids");
+        out.append("        ").append(repository).append(model.flavor() == ModelDescriptor.Flavor.JPA ? ".deleteAllByIdInBatch(ids);\n" : ".deleteAllById(ids);\n");
+        out.append("        return true;\n");
+        out.append("    }\n");
+    }
+
+    // Hands every row to the consumer as a response while the repository stream reads it. Nothing collects the rows,
+    // and the JPA persistence context, which keeps every entity it loaded, is cleared after each batch
+    private static void appendExport(StringBuilder out, ModelDescriptor model, boolean jpa) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String repository = Names.decapitalize(modelName) + "Repository";
+
+        out.append("\n");
+        if (jpa) out.append("    @Transactional(readOnly = true)\n");
+        appendTimed(out, Names.decapitalize(modelName), "exportAll");
+        out.append("    public void exportAll(ThrowingConsumer<").append(modelName).append("DtoResponse> consumer) {\n");
+        appendLog(out, className + " export all");
+        out.append("        try (Stream<").append(className).append("> rows = ").append(repository).append(".streamAllBy()) {\n");
+        if (jpa) {
+            out.append("            int read = 0;\n");
+            out.append("            for (Iterator<").append(className).append("> iterator = rows.iterator(); iterator.hasNext(); ) {\n");
+            out.append("                consumer.accept(").append(modelName).append("DtoMapper.toResponse(iterator.next()));\n");
+            out.append("                if (++read % ").append(RepositoryGenerator.EXPORT_BATCH).append(" == 0) entityManager.clear();\n");
+            out.append("            }\n");
+        } else {
+            out.append("            rows.map(").append(modelName).append("DtoMapper::toResponse).forEach(consumer);\n");
+        }
+        out.append("        }\n");
+        out.append("    }\n");
+    }
+
+    // Starts every lookup before waiting for the first, a missing entity still ends in its own EntityNotFoundException.
+    // Without the executor the lookups run one after another on the calling thread
+    private static void appendParallelLookups(StringBuilder out, ModelDescriptor model, List<Relation> relations) {
+        String className = model.className();
+        String lowercaseModelName = Names.decapitalize(model.modelName());
+
+        out.append("\n");
+        out.append("    private void setRelations(").append(className).append(" ").append(lowercaseModelName).append(") {\n");
+        out.append("        if (lookupExecutor == null) {\n");
+        for (Relation relation : relations) {
+            out.append("            ").append(lowercaseModelName).append(".set").append(relation.setter()).append("(").append(relation.serviceName())
+                    .append(".getById(").append(lowercaseModelName).append(".get").append(relation.setter()).append("().getId()));\n");
+        }
+        out.append("            return;\n");
+        out.append("        }\n");
+        List<String> lookups = new ArrayList<>();
+        for (Relation relation : relations) {
+            String related = Names.decapitalize(relation.setter());
+            if (related.equals(lowercaseModelName)) related = "related" + relation.setter();
+            lookups.add(related);
+            out.append("        var ").append(related).append(" = CompletableFuture.supplyAsync(() -> ").append(relation.serviceName())
+                    .append(".getById(").append(lowercaseModelName).append(".get").append(relation.setter()).append("().getId()), lookupExecutor);\n");
+        }
+        for (int i = 0; i < relations.size(); i++) {
+            out.append("        ").append(lowercaseModelName).append(".set").append(relations.get(i).setter())
+                    .append("(await(").append(lookups.get(i)).append("));\n");
+        }
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    private static <T> T await(CompletableFuture<T> lookup) {\n");
+        out.append("        try {\n");
+        out.append("            return lookup.join();\n");
+        out.append("        } catch (CompletionException e) {\n");
+        out.append("            if (e.getCause() instanceof RuntimeException cause) throw cause;\n");
+        out.append("            throw e;\n");
+        out.append("        }\n");
+        out.append("    }\n");
+    }
+
+    // @Timed on the operations of the service, recorded by the TimedAspect of ConfigGenerator. The lookups other services
+    // call, getReferenceById and getAllById, are timed by the operation that calls them.
+    // The reads get histogram buckets so their percentiles can be computed across instances
+    private static void appendTimed(StringBuilder out, String entity, String operation) {
+        if (!GeneratorOptions.metrics()) return;
+        out.append("    @Timed(value = \"service.operation\", extraTags = {\"entity\", \"").append(entity)
+                .append("\", \"operation\", \"").append(operation).append("\"}")
+                .append(READS.contains(operation) ? ", histogram = true)\n" : ")\n");
+    }
+
+    // FULL logs at INFO. IDS logs at DEBUG behind a level check, and the callers pass ids instead of the entity,
+    // so toString never walks the fields and lazy relations. OFF writes nothing, the class has no logger
+    private static void appendLog(StringBuilder out, String message, String... arguments) {
+        GeneratorOptions.Logging logging = GeneratorOptions.logging();
+        if (logging == GeneratorOptions.Logging.OFF) return;
+        out.append(logging == GeneratorOptions.Logging.IDS ? "        if (log.isDebugEnabled()) log.debug(\"" : "        log.info(\"").append(message).append("\"");
+        for (String argument : arguments) out.append(", ").append(argument);
+        out.append(");\n");
+    }
+
+    // Reads the relations back from the generated mapper: a 'model.set' line two lines after '= new'
+    public static List<Relation> relations(Path mapperFile) {
+        List<Relation> relations = new ArrayList<>();
+        if (!Manifest.exists(mapperFile)) return relations;
+
+        boolean prePreviousLineIsNew = false;
+        boolean previousLineIsNew = false;
+        boolean previousLineIsNotEmpty = false;
+        String service = null;
+        for (String line : JavaSource.read(mapperFile).lines()) {
+            int setter = line.indexOf("model.set");
+            if (setter >= 0 && previousLineIsNotEmpty && prePreviousLineIsNew) {
+                String object = line.substring(setter + "model.set".length());
+                int end = object.indexOf("model.set");
+                if (end >= 0) object = object.substring(0, end);
+                end = object.indexOf('(');
+                if (end >= 0) object = object.substring(0, end);
+                relations.add(new Relation(object, service));
+                // The scripts lose the current line here, so it counts as an empty one
+                line = "";
+            }
+
+            prePreviousLineIsNew = previousLineIsNew;
+            previousLineIsNotEmpty = !line.replace(" ", "").isEmpty();
+            previousLineIsNew = line.contains("= new");
+            if (previousLineIsNew) {
+                String[] columns = line.split(" {8}", -1);
+                String type = JavaSource.word(JavaSource.words(columns.length > 1 ? columns[1] : ""), 0);
+                service = Names.stripSuffix(type, "Model") + "Service";
+            }
+        }
+        return relations;
+    }
+}
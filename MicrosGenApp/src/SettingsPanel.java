@@ -12,7 +12,23 @@ import java.util.Properties;
 public class SettingsPanel extends JPanel {
 
     private JCheckBox generateDependenciesCheckBox;
+    private JCheckBox useScriptsCheckBox;
+    private JCheckBox incrementalCheckBox;
+    private JCheckBox classpathTemplatesCheckBox;
+    private JCheckBox cacheCheckBox;
+    private JCheckBox referencesCheckBox;
+    private JCheckBox bulkCheckBox;
+    private JComboBox<GeneratorOptions.Pagination> paginationComboBox;
+    private JComboBox<GeneratorOptions.Logging> loggingComboBox;
+    private JCheckBox projectionsCheckBox;
+    private JCheckBox fetchGraphsCheckBox;
+    private JCheckBox indexesCheckBox;
+    private JCheckBox reactiveCheckBox;
+    private JCheckBox virtualThreadsCheckBox;
+    private JCheckBox metricsCheckBox;
+    private JCheckBox exportCheckBox;
     private JCheckBox darkThemeCheckBox;
+    private JSpinner threadsSpinner;
 
     public SettingsPanel() {
         setLayout(new BorderLayout());
@@ -44,9 +60,9 @@ public class SettingsPanel extends JPanel {
             @Override
             public void itemStateChanged(ItemEvent e) {
                 if (e.getStateChange() == ItemEvent.SELECTED) {
-                    Run.generateDependencies=true;
+                    GeneratorOptions.dependencies=true;
                 } else {
-                    Run.generateDependencies=false;
+                    GeneratorOptions.dependencies=false;
                 }
                 saveSettings();
             }
@@ -54,6 +70,183 @@ public class SettingsPanel extends JPanel {
         standardizeCheckBox(generateDependenciesCheckBox);
         userPreferencesPanel.add(generateDependenciesCheckBox);
 
+        useScriptsCheckBox = new JCheckBox("Use bash scripts (legacy mode)");
+        useScriptsCheckBox.setFocusable(false);
+        useScriptsCheckBox.addItemListener(e -> {
+            Run.useScripts = e.getStateChange() == ItemEvent.SELECTED;
+            if (Run.useScripts) FileChecker.createTempFilesAsync();
+            saveSettings();
+        });
+        standardizeCheckBox(useScriptsCheckBox);
+        userPreferencesPanel.add(useScriptsCheckBox);
+
+        incrementalCheckBox = new JCheckBox("Incremental generation (keep hand edits)", true);
+        incrementalCheckBox.setFocusable(false);
+        incrementalCheckBox.addItemListener(e -> {
+            GenerationEngine.incremental = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(incrementalCheckBox);
+        userPreferencesPanel.add(incrementalCheckBox);
+
+        classpathTemplatesCheckBox = new JCheckBox("Templates from jar (no temp copy)");
+        classpathTemplatesCheckBox.setFocusable(false);
+        classpathTemplatesCheckBox.addItemListener(e -> {
+            Templates.fromClasspath = e.getStateChange() == ItemEvent.SELECTED;
+            if (!Templates.fromClasspath) FileChecker.createTempFilesAsync();
+            saveSettings();
+        });
+        standardizeCheckBox(classpathTemplatesCheckBox);
+        userPreferencesPanel.add(classpathTemplatesCheckBox);
+
+        // Models generated in parallel by the engine, defaults to one per core
+        JPanel threadsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        threadsPanel.setOpaque(false);
+        JLabel threadsLabel = new JLabel("Parallel models: ");
+        threadsLabel.setForeground(Styles.fgColor);
+        threadsSpinner = new JSpinner(new SpinnerNumberModel(GenerationEngine.threads, 1, 256, 1));
+        threadsSpinner.addChangeListener(e -> {
+            GenerationEngine.threads = (Integer) threadsSpinner.getValue();
+            saveSettings();
+        });
+        threadsPanel.add(threadsLabel);
+        threadsPanel.add(threadsSpinner);
+        Dimension threadsSize = new Dimension(300, 30);
+        threadsPanel.setPreferredSize(threadsSize);
+        threadsPanel.setMaximumSize(threadsSize);
+        threadsPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        userPreferencesPanel.add(threadsPanel);
+
+        // Options of the generated code, only the built-in engine applies them
+        JPanel generatedCodePanel = createTitledPanel("Generated Code");
+        cacheCheckBox = new JCheckBox("Cache entity reads (Caffeine)");
+        cacheCheckBox.setFocusable(false);
+        cacheCheckBox.addItemListener(e -> {
+            GeneratorOptions.cache = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(cacheCheckBox);
+        generatedCodePanel.add(cacheCheckBox);
+
+        referencesCheckBox = new JCheckBox("Reference lookups for relations (JPA)");
+        referencesCheckBox.setFocusable(false);
+        referencesCheckBox.addItemListener(e -> {
+            GeneratorOptions.references = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(referencesCheckBox);
+        generatedCodePanel.add(referencesCheckBox);
+
+        bulkCheckBox = new JCheckBox("Bulk endpoints (saveAll, batched)");
+        bulkCheckBox.setFocusable(false);
+        bulkCheckBox.addItemListener(e -> {
+            GeneratorOptions.bulk = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(bulkCheckBox);
+        generatedCodePanel.add(bulkCheckBox);
+
+        // Page counts every row, slice and keyset do not, keyset also seeks instead of skipping rows
+        JPanel paginationPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        paginationPanel.setOpaque(false);
+        JLabel paginationLabel = new JLabel("getAll pagination: ");
+        paginationLabel.setForeground(Styles.fgColor);
+        paginationComboBox = new JComboBox<>(GeneratorOptions.Pagination.values());
+        paginationComboBox.setSelectedItem(GeneratorOptions.pagination);
+        paginationComboBox.setFocusable(false);
+        paginationComboBox.addActionListener(e -> {
+            GeneratorOptions.pagination = (GeneratorOptions.Pagination) paginationComboBox.getSelectedItem();
+            saveSettings();
+        });
+        paginationPanel.add(paginationLabel);
+        paginationPanel.add(paginationComboBox);
+        Dimension paginationSize = new Dimension(300, 30);
+        paginationPanel.setPreferredSize(paginationSize);
+        paginationPanel.setMaximumSize(paginationSize);
+        paginationPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        generatedCodePanel.add(paginationPanel);
+
+        JPanel loggingPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        loggingPanel.setOpaque(false);
+        JLabel loggingLabel = new JLabel("Service logging: ");
+        loggingLabel.setForeground(Styles.fgColor);
+        loggingComboBox = new JComboBox<>(GeneratorOptions.Logging.values());
+        loggingComboBox.setSelectedItem(GeneratorOptions.logging);
+        loggingComboBox.setFocusable(false);
+        loggingComboBox.addActionListener(e -> {
+            GeneratorOptions.logging = (GeneratorOptions.Logging) loggingComboBox.getSelectedItem();
+            saveSettings();
+        });
+        loggingPanel.add(loggingLabel);
+        loggingPanel.add(loggingComboBox);
+        Dimension loggingSize = new Dimension(300, 30);
+        loggingPanel.setPreferredSize(loggingSize);
+        loggingPanel.setMaximumSize(loggingSize);
+        loggingPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        generatedCodePanel.add(loggingPanel);
+
+        projectionsCheckBox = new JCheckBox("DTO projections for reads");
+        projectionsCheckBox.setFocusable(false);
+        projectionsCheckBox.addItemListener(e -> {
+            GeneratorOptions.projections = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(projectionsCheckBox);
+        generatedCodePanel.add(projectionsCheckBox);
+
+        fetchGraphsCheckBox = new JCheckBox("Fetch relations with entity graphs");
+        fetchGraphsCheckBox.setFocusable(false);
+        fetchGraphsCheckBox.addItemListener(e -> {
+            GeneratorOptions.fetchGraphs = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(fetchGraphsCheckBox);
+        generatedCodePanel.add(fetchGraphsCheckBox);
+
+        indexesCheckBox = new JCheckBox("Index foreign keys and lookups");
+        indexesCheckBox.setFocusable(false);
+        indexesCheckBox.addItemListener(e -> {
+            GeneratorOptions.indexes = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(indexesCheckBox);
+        generatedCodePanel.add(indexesCheckBox);
+
+        reactiveCheckBox = new JCheckBox("Reactive (WebFlux, R2DBC, reactive Mongo)");
+        reactiveCheckBox.setFocusable(false);
+        reactiveCheckBox.addItemListener(e -> {
+            GeneratorOptions.reactive = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(reactiveCheckBox);
+        generatedCodePanel.add(reactiveCheckBox);
+
+        virtualThreadsCheckBox = new JCheckBox("Virtual threads profile (Java 21)");
+        virtualThreadsCheckBox.setFocusable(false);
+        virtualThreadsCheckBox.addItemListener(e -> {
+            GeneratorOptions.virtualThreads = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(virtualThreadsCheckBox);
+        generatedCodePanel.add(virtualThreadsCheckBox);
+
+        metricsCheckBox = new JCheckBox("Micrometer timers on service methods");
+        metricsCheckBox.setFocusable(false);
+        metricsCheckBox.addItemListener(e -> {
+            GeneratorOptions.metrics = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(metricsCheckBox);
+        generatedCodePanel.add(metricsCheckBox);
+
+        exportCheckBox = new JCheckBox("Streaming NDJSON export endpoint");
+        exportCheckBox.setFocusable(false);
+        exportCheckBox.addItemListener(e -> {
+            GeneratorOptions.export = e.getStateChange() == ItemEvent.SELECTED;
+            saveSettings();
+        });
+        standardizeCheckBox(exportCheckBox);
+        generatedCodePanel.add(exportCheckBox);
 
         // Appearance panel
         JPanel appearancePanel = createTitledPanel("Appearance");
@@ -76,6 +269,8 @@ public class SettingsPanel extends JPanel {
         // Add the sub-panels to the main checkBoxPanel
         checkBoxPanel.add(userPreferencesPanel);
         checkBoxPanel.add(Box.createVerticalStrut(10)); // Space between panels
+        checkBoxPanel.add(generatedCodePanel);
+        checkBoxPanel.add(Box.createVerticalStrut(10));
         checkBoxPanel.add(appearancePanel);
 
         // Center the checkBoxPanel in the BorderLayout
@@ -109,6 +304,22 @@ public class SettingsPanel extends JPanel {
     private void saveSettings() {
         Properties properties = new Properties();
         properties.setProperty("generateDependencies", Boolean.toString(generateDependenciesCheckBox.isSelected()));
+        properties.setProperty("useScripts", Boolean.toString(useScriptsCheckBox.isSelected()));
+        properties.setProperty("incremental", Boolean.toString(incrementalCheckBox.isSelected()));
+        properties.setProperty("templatesFromClasspath", Boolean.toString(classpathTemplatesCheckBox.isSelected()));
+        properties.setProperty("threads", threadsSpinner.getValue().toString());
+        properties.setProperty("cache", Boolean.toString(cacheCheckBox.isSelected()));
+        properties.setProperty("references", Boolean.toString(referencesCheckBox.isSelected()));
+        properties.setProperty("bulk", Boolean.toString(bulkCheckBox.isSelected()));
+        properties.setProperty("pagination", paginationComboBox.getSelectedItem().toString());
+        properties.setProperty("logging", loggingComboBox.getSelectedItem().toString());
+        properties.setProperty("projections", Boolean.toString(projectionsCheckBox.isSelected()));
+        properties.setProperty("fetchGraphs", Boolean.toString(fetchGraphsCheckBox.isSelected()));
+        properties.setProperty("indexes", Boolean.toString(indexesCheckBox.isSelected()));
+        properties.setProperty("reactive", Boolean.toString(reactiveCheckBox.isSelected()));
+        properties.setProperty("virtualThreads", Boolean.toString(virtualThreadsCheckBox.isSelected()));
+        properties.setProperty("metrics", Boolean.toString(metricsCheckBox.isSelected()));
+        properties.setProperty("export", Boolean.toString(exportCheckBox.isSelected()));
         properties.setProperty("darkTheme", Boolean.toString(darkThemeCheckBox.isSelected()));
 
         String filePath = MenuPanel.SCRIPT_PATH + File.separator + "settings.properties";
@@ -125,6 +336,22 @@ public class SettingsPanel extends JPanel {
         try (FileInputStream fis = new FileInputStream(MenuPanel.SCRIPT_PATH + File.separator + "settings.properties")) {
             properties.load(fis);
             generateDependenciesCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("generateDependencies", "false")));
+            useScriptsCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("useScripts", "false")));
+            incrementalCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("incremental", "true")));
+            classpathTemplatesCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("templatesFromClasspath", "false")));
+            threadsSpinner.setValue(parseThreads(properties.getProperty("threads")));
+            cacheCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("cache", "false")));
+            referencesCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("references", "false")));
+            bulkCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("bulk", "false")));
+            paginationComboBox.setSelectedItem(parsePagination(properties.getProperty("pagination")));
+            loggingComboBox.setSelectedItem(parseLogging(properties.getProperty("logging")));
+            projectionsCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("projections", "false")));
+            fetchGraphsCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("fetchGraphs", "false")));
+            indexesCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("indexes", "false")));
+            reactiveCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("reactive", "false")));
+            virtualThreadsCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("virtualThreads", "false")));
+            metricsCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("metrics", "false")));
+            exportCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("export", "false")));
             darkThemeCheckBox.setSelected(Boolean.parseBoolean(properties.getProperty("darkTheme", "true")));
         } catch (IOException ignored) {
         }
@@ -132,4 +359,27 @@ public class SettingsPanel extends JPanel {
         Styles.darkTheme(darkThemeCheckBox.isSelected());
     }
 
+    private GeneratorOptions.Pagination parsePagination(String value) {
+        try {
+            return GeneratorOptions.Pagination.valueOf(value);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return GeneratorOptions.Pagination.PAGE;
+        }
+    }
+
+    private GeneratorOptions.Logging parseLogging(String value) {
+        try {
+            return GeneratorOptions.Logging.valueOf(value);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return GeneratorOptions.Logging.FULL;
+        }
+    }
+
+    private int parseThreads(String value) {
+        try {
+            return Math.max(1, Math.min(256, Integer.parseInt(value)));
+        } catch (NumberFormatException e) {
+            return GenerationEngine.threads;
+        }
+    }
 }
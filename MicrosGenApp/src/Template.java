@@ -0,0 +1,87 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// A static file parsed once into literal text and ${placeholder} segments
+public class Template {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([A-Za-z_][A-Za-z0-9_]*)}");
+
+    // Placeholders the generators fill in, anything else in a template is a typo
+    public static final Set<String> KNOWN_PLACEHOLDERS = Set.of(
+            "model_name", "lowercase_model_name", "request_model_name", "id_type", "class_name", "controller_api",
+            "id_property", "id_parser");
+
+    // Literal text when placeholder is null
+    private record Segment(String text, String placeholder) {
+    }
+
+    private final String name;
+    private final String hash;
+    private final List<Segment> segments;
+    private final Set<String> placeholders;
+    private final int literalLength;
+
+    private Template(String name, String hash, List<Segment> segments, Set<String> placeholders, int literalLength) {
+        this.name = name;
+        this.hash = hash;
+        this.segments = segments;
+        this.placeholders = placeholders;
+        this.literalLength = literalLength;
+    }
+
+    public static Template compile(String name, String source) {
+        List<Segment> segments = new ArrayList<>();
+        Set<String> placeholders = new LinkedHashSet<>();
+        int literalLength = 0;
+        int position = 0;
+        Matcher matcher = PLACEHOLDER.matcher(source);
+        while (matcher.find()) {
+            String placeholder = matcher.group(1);
+            if (!KNOWN_PLACEHOLDERS.contains(placeholder)) {
+                throw new GenerationException("Unknown placeholder ${" + placeholder + "} in template " + name);
+            }
+            if (matcher.start() > position) segments.add(new Segment(source.substring(position, matcher.start()), null));
+            literalLength += matcher.start() - position;
+            segments.add(new Segment(null, placeholder));
+            placeholders.add(placeholder);
+            position = matcher.end();
+        }
+        if (position < source.length()) segments.add(new Segment(source.substring(position), null));
+        literalLength += source.length() - position;
+        return new Template(name, Hashes.sha256(source.getBytes(StandardCharsets.UTF_8)), List.copyOf(segments),
+                Collections.unmodifiableSet(placeholders), literalLength);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // Hash of the source text, recorded in the manifest
+    public String hash() {
+        return hash;
+    }
+
+    public Set<String> placeholders() {
+        return placeholders;
+    }
+
+    // Appends the filled template, every placeholder it uses must have a value
+    public void render(StringBuilder out, Map<String, String> values) {
+        for (String placeholder : placeholders) {
+            if (values.get(placeholder) == null) {
+                throw new GenerationException("No value for ${" + placeholder + "} in template " + name);
+            }
+        }
+        Manifest.template(name, hash);
+        out.ensureCapacity(out.length() + literalLength);
+        for (Segment segment : segments) {
+            out.append(segment.placeholder() != null ? values.get(segment.placeholder()) : segment.text());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Templates {
+    // Read the templates from the jar only, no temp copy is needed then
+    public static volatile boolean fromClasspath;
+
+    // Compiled template and the extracted file it came from, file is null for the classpath copy
+    private record Entry(Template template, Path file, FileTime modified) {
+    }
+
+    private static final Map<String, Entry> compiled = new ConcurrentHashMap<>();
+
+    private static final List<String> NAMES = List.of(
+            "main/controller/static1", "main/controller/bulk", "main/controller/getAllSlice", "main/controller/getAllKeyset",
+            "main/controller/reactive", "main/controller/reactiveGetAllSlice", "main/controller/reactiveGetAllKeyset",
+            "main/controller/export",
+            "main/dto/CursorPage",
+            "main/exception/ExceptionPayload", "main/exception/EntityNotFoundException", "main/exception/GlobalExceptionHandler",
+            "main/config/CacheConfig", "main/config/BatchConfig", "main/config/MongoPoolConfig", "main/config/MetricsConfig",
+            "main/config/LookupExecutorConfig",
+            "test/service/static1", "test/service/static2", "test/service/static3", "test/service/static4",
+            "test/service/static5", "test/service/static6", "test/service/static7",
+            "test/service/getAllSlice", "test/service/getAllKeyset",
+            "test/controller/static1_1", "test/controller/static1_2", "test/controller/static1_3",
+            "test/controller/static2", "test/controller/static3", "test/controller/static4", "test/controller/bulk",
+            "test/controller/getAllSlice", "test/controller/getAllKeyset", "test/controller/concurrency",
+            "test/controller/export");
+
+    public static List<String> names() {
+        return NAMES;
+    }
+
+    // Compiles every template before a run, a broken template fails before any file is written
+    public static void compileAll() {
+        for (String name : NAMES) get(name);
+    }
+
+    // Static file extracted by FileChecker, or the classpath copy until the extraction is done, compiled once
+    public static Template get(String name) {
+        Path extracted = Path.of(MenuPanel.SCRIPT_PATH, "static", name);
+        Path file = !fromClasspath && FileChecker.isExtracted() && Files.isRegularFile(extracted) ? extracted : null;
+        try {
+            FileTime modified = file != null ? Files.getLastModifiedTime(file) : null;
+            Entry entry = compiled.get(name);
+            if (entry != null && Objects.equals(entry.file(), file) && Objects.equals(entry.modified(), modified)) {
+                return entry.template();
+            }
+            Template template = Template.compile(name, file != null ? Files.readString(file, StandardCharsets.UTF_8) : readClasspath(name));
+            compiled.put(name, new Entry(template, file, modified));
+            return template;
+        } catch (IOException e) {
+            throw new GenerationException("Unable to read template " + name, e);
+        }
+    }
+
+    // Swaps the part of a rendered static file from the line starting with 'from' up to the one starting with 'to' for another template
+    public static void replace(StringBuilder out, String from, String to, String name, Map<String, String> values) {
+        int start = out.indexOf(from);
+        int end = start >= 0 ? out.indexOf(to, start) : -1;
+        if (end < 0) throw new GenerationException("Template " + name + " replaces a part that is missing: " + from.strip());
+        StringBuilder replacement = new StringBuilder();
+        get(name).render(replacement, values);
+        out.replace(start, end, replacement.toString());
+    }
+
+    // Replaces text in the part of a rendered static file from the line starting with 'from' up to the one starting with 'to'
+    public static void rewrite(StringBuilder out, String from, String to, Map<String, String> replacements) {
+        int start = out.indexOf(from);
+        int end = start >= 0 ? out.indexOf(to, start) : -1;
+        if (end < 0) throw new GenerationException("Rendered template has no part starting with " + from.strip());
+        String part = out.substring(start, end);
+        for (Map.Entry<String, String> replacement : replacements.entrySet()) {
+            part = part.replace(replacement.getKey(), replacement.getValue());
+        }
+        out.replace(start, end, part);
+    }
+
+    // Adds lines, like imports the static file does not have, after the first occurrence of a line
+    public static void insertAfter(StringBuilder out, String line, String text) {
+        int index = out.indexOf(line);
+        if (index < 0) throw new GenerationException("Line missing in rendered template: " + line.strip());
+        out.insert(index + line.length(), text);
+    }
+
+    private static String readClasspath(String name) throws IOException {
+        try (InputStream inputStream = Templates.class.getResourceAsStream("resources/static_files/" + name)) {
+            if (inputStream == null) throw new GenerationException("Template " + name + " not found");
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,1621 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class TestGenerator {
+    private static final Pattern QUOTED = Pattern.compile("\"[^\"]*\"");
+
+    public static Path staticObjectDirectory(ModuleLayout layout) {
+        return layout.testBaseDir().resolve("static_object");
+    }
+
+    public static Path serviceDirectory(ModuleLayout layout) {
+        return layout.testBaseDir().resolve("service");
+    }
+
+    public static Path controllerDirectory(ModuleLayout layout) {
+        return layout.testBaseDir().resolve("controller");
+    }
+
+    public static Path repositoryDirectory(ModuleLayout layout) {
+        return layout.testBaseDir().resolve("repository");
+    }
+
+    // Static<Model> holds the fixtures shared by the service and controller tests
+    public static void generateStaticObject(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        Path requestFile = layout.dtoRequest(modelName);
+        Path responseFile = layout.dtoResponse(modelName);
+        JavaSource request = Manifest.exists(requestFile) ? JavaSource.read(requestFile) : null;
+        JavaSource response = Manifest.exists(responseFile) ? JavaSource.read(responseFile) : null;
+        String idType = model.idType();
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(basePackage).append(".static_object;\n");
+        out.append("\n");
+        if (request != null) out.append("import ").append(basePackage).append(".dto.request.").append(modelName).append("DtoRequest;\n");
+        if (response != null) out.append("import ").append(basePackage).append(".dto.response.").append(modelName).append("DtoResponse;\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("\n");
+        if (model.declaresLocalDateTime()) out.append("import java.time.LocalDateTime;\n");
+        if (model.declaresBigDecimal()) out.append("import java.math.BigDecimal;\n");
+        out.append("\n");
+        out.append("public class Static").append(modelName).append(" {\n");
+        out.append("\n");
+        switch (idType) {
+            case "String" -> out.append("    public static final String ID = \"").append(model.idName()).append("\";\n");
+            case "Long" -> out.append("    public static final Long ID = 1L;\n");
+            case "Integer" -> out.append("    public static final Integer ID = 1;\n");
+            default -> {
+            }
+        }
+
+        for (int variant = 1; variant <= 2; variant++) {
+            out.append("\n");
+            out.append("    public static ").append(className).append(" ").append(lowercaseModelName).append(variant).append("() {\n");
+            out.append("        ").append(className).append(" model = new ").append(className).append("();\n");
+            for (JavaSource.Field field : model.fields()) {
+                String fieldType = field.type();
+                String fieldName = field.name();
+                String value = literal(fieldType, fieldName, variant);
+                if (fieldName.equals("id")) {
+                    out.append("        model.setId(ID);\n");
+                } else if (value != null) {
+                    out.append("        model.set").append(Names.capitalize(fieldName)).append("(").append(value).append(");\n");
+                } else if (!Names.isCollection(fieldType)) {
+                    fieldType = Names.stripSuffix(fieldType, "Model");
+                    out.append("        model.set").append(Names.capitalize(fieldName)).append("(Static").append(fieldType)
+                            .append(".").append(Names.decapitalize(fieldType)).append(variant).append("());\n");
+                }
+            }
+            out.append("        return model;\n");
+            out.append("    }\n");
+        }
+
+        if (request != null) {
+            out.append("\n");
+            out.append("    public static ").append(modelName).append("DtoRequest ").append(lowercaseModelName).append("DtoRequest1() {\n");
+            out.append("        ").append(modelName).append("DtoRequest dtoRequest = new ").append(modelName).append("DtoRequest();\n");
+            for (JavaSource.Field field : request.fields()) {
+                String fieldType = field.type();
+                String fieldName = field.name();
+                String value = literal(fieldType, fieldName, 1);
+                if (value != null) {
+                    out.append("        dtoRequest.set").append(Names.capitalize(fieldName)).append("(").append(value).append(");\n");
+                } else if (!Names.isCollection(fieldType)) {
+                    fieldType = Names.stripSuffix(fieldType, "DtoRequest");
+                    out.append("        dtoResponse.set").append(Names.capitalize(fieldName)).append("(Static").append(fieldType)
+                            .append(".DtoRequest());\n");
+                }
+            }
+            out.append("        return dtoRequest;\n");
+            out.append("    }\n");
+        }
+
+        if (response != null) {
+            for (int variant = 1; variant <= 2; variant++) {
+                out.append("\n");
+                out.append("    public static ").append(modelName).append("DtoResponse ").append(lowercaseModelName)
+                        .append("DtoResponse").append(variant).append("() {\n");
+                out.append("        ").append(modelName).append("DtoResponse dtoResponse = new ").append(modelName).append("DtoResponse();\n");
+                for (JavaSource.Field field : response.fields()) {
+                    String fieldType = field.type();
+                    String fieldName = field.name();
+                    String value = literal(fieldType, fieldName, variant);
+                    if (fieldName.equals("id")) {
+                        out.append("        dtoResponse.setId(ID);\n");
+                    } else if (value != null) {
+                        out.append("        dtoResponse.set").append(Names.capitalize(fieldName)).append("(").append(value).append(");\n");
+                    } else if (!Names.isCollection(fieldType)) {
+                        fieldType = Names.stripSuffix(fieldType, "DtoResponse");
+                        out.append("        dtoResponse.set").append(Names.capitalize(fieldName)).append("(Static").append(fieldType)
+                                .append(".").append(Names.decapitalize(fieldType)).append("DtoResponse1());\n");
+                    }
+                }
+                out.append("        return dtoResponse;\n");
+                out.append("    }\n");
+            }
+        }
+        out.append("}\n");
+        Output.write(staticObjectDirectory(layout).resolve("Static" + modelName + ".java"), out);
+    }
+
+    public static void generateServiceTest(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        Path serviceFile = ServiceGenerator.directory(layout).resolve(modelName + "Service.java");
+        if (!Manifest.exists(serviceFile)) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        JavaSource service = JavaSource.read(serviceFile);
+        if (service.contains("import reactor.core.publisher.Mono;")) {
+            generateReactiveServiceTest(layout, model, service);
+            return;
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("model_name", modelName);
+        values.put("lowercase_model_name", lowercaseModelName);
+
+        List<String> services = relatedServices(service);
+        String lookup = relationLookup(service);
+        // Reference writes only look the related entities up when their combined check found one missing
+        boolean checked = service.contains(lowercaseModelName + "Repository.countRelated(");
+        boolean exists = service.contains(lowercaseModelName + "Repository.existsById(id)");
+        String missingLookup = checked ? "getById" : lookup;
+
+        StringBuilder out = new StringBuilder(8192);
+        out.append("package ").append(basePackage).append(".service;\n");
+        out.append("\n");
+        List<String> serviceLines = service.lines();
+        // The service's own imports, the logger import after them is missing when the service does not log
+        for (int i = 1; i < serviceLines.size() && (i == 1 || serviceLines.get(i).startsWith("import " + basePackage + ".")); i++) {
+            out.append(serviceLines.get(i)).append("\n");
+        }
+        out.append("import ").append(basePackage).append(".static_object.Static").append(modelName).append(";\n");
+        for (String related : services) {
+            out.append("import ").append(basePackage).append(".static_object.Static")
+                    .append(Names.stripSuffix(related, "Service")).append(";\n");
+        }
+        Templates.get("test/service/static1").render(out, values);
+        for (String related : services) {
+            out.append("    @Mock\n");
+            out.append("    private ").append(related).append(" ").append(Names.decapitalize(related)).append(";\n");
+        }
+
+        values.put("class_name", className);
+        Templates.get("test/service/static2").render(out, values);
+        appendStubs(out, services, lookup);
+        appendChecks(out, service, modelName, services.size(), true, false);
+        Templates.get("test/service/static3").render(out, values);
+        // The scripts verify every related service against the last related object
+        if (!services.isEmpty()) {
+            String lastObject = Names.stripSuffix(services.get(services.size() - 1), "Service");
+            for (String related : services) {
+                out.append("        verify(").append(Names.decapitalize(related)).append(", times(1)).").append(lookup).append("(Static")
+                        .append(lastObject).append(".ID);\n");
+            }
+        }
+        if (checked) {
+            out.append("        verify(").append(lowercaseModelName).append("Repository, times(1)).countRelated(")
+                    .append(String.join(", ", Collections.nCopies(services.size(), "any()"))).append(");\n");
+            for (String related : services) {
+                out.append("        verify(").append(Names.decapitalize(related)).append(", never()).getById(any());\n");
+            }
+        }
+        out.append("        verify(").append(lowercaseModelName).append("Repository, times(1)).save(").append(lowercaseModelName).append(");\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        appendNotFoundTests(out, services, missingLookup, "testCreate", null,
+                lowercaseModelName + "Service.create(" + lowercaseModelName + ")",
+                checked ? "        verify(" + lowercaseModelName + "Repository, never()).save(any());\n"
+                        : "        verifyNoInteractions(" + lowercaseModelName + "Repository);\n");
+        out.append("    @Test\n");
+        out.append("    void testCreate_DataAccessException() {\n");
+        appendStubs(out, services, lookup);
+        Templates.get("test/service/static4").render(out, values);
+        if (service.contains("Slice<")) {
+            values.put("id_property", Names.capitalize(model.idName()));
+            replaceGetAllTests(out, service.contains("GreaterThan(after, pageable)") ? "test/service/getAllKeyset" : "test/service/getAllSlice",
+                    values, "    @Test\n    void testGetAll() {", "    @Test\n    void testUpdate_Success() {");
+        }
+        appendStubs(out, services, lookup);
+        appendChecks(out, service, modelName, services.size(), false, true);
+        Templates.get("test/service/static5").render(out, values);
+        if (service.contains(" getReferenceById(")) appendReferenceTests(out, modelName, className);
+        if (service.contains(" getResponseById(")) {
+            appendProjectionTests(out, modelName, service.contains("findResponsesByIdGreaterThan(") ? "keyset"
+                    : service.contains("Page<" + modelName + "DtoResponse>") ? "page" : "slice");
+        }
+        appendNotFoundTests(out, services, missingLookup, "testUpdateById",
+                "        when(" + lowercaseModelName + "Repository.findById(Static" + modelName + ".ID)).thenReturn(java.util.Optional.of("
+                        + lowercaseModelName + "));\n",
+                lowercaseModelName + "Service.updateById(Static" + modelName + ".ID, " + lowercaseModelName + ")",
+                "");
+        Templates.get("test/service/static6").render(out, values);
+        appendStubs(out, services, lookup);
+        appendChecks(out, service, modelName, services.size(), false, true);
+        Templates.get("test/service/static7").render(out, values);
+        if (checked || exists) {
+            // The update passes its check without reading the entity, a missing one is read or only checked
+            Templates.rewrite(out, "    @Test\n    void testUpdate_Success() {", "    @Test\n    void testGetReferenceById_Success() {",
+                    Map.of(", times(1)).findById(", ", never()).findById("));
+        }
+        if (exists) {
+            Templates.rewrite(out, "    @Test\n    void testUpdateById_EntityNotFoundException() {", "    @Test\n    void testUpdateById_AnyException() {", Map.of(
+                    ".findById(Static" + modelName + ".ID)).thenReturn(java.util.Optional.empty())", ".existsById(Static" + modelName + ".ID)).thenReturn(false)",
+                    ", times(1)).findById(", ", times(1)).existsById("));
+        }
+        if (service.contains(" createAll(")) {
+            out.setLength(out.lastIndexOf("}"));
+            appendBulkTests(out, modelName, className, services, service.contains(".deleteAllByIdInBatch("));
+            out.append("}");
+        }
+        Output.write(serviceDirectory(layout).resolve(modelName + "ServiceTest.java"), out);
+    }
+
+    // Service test of a reactive service: the repository and related services are stubbed with Mono and Flux
+    // and every result is checked with StepVerifier
+    private static void generateReactiveServiceTest(ModuleLayout layout, ModelDescriptor model, JavaSource service) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        String repository = lowercaseModelName + "Repository";
+        String serviceName = lowercaseModelName + "Service";
+        String staticObject = "Static" + modelName;
+        String second = lowercaseModelName + "2";
+        List<String> services = relatedServices(service);
+        boolean page = service.contains("Mono<Page<");
+        boolean keyset = service.contains("GreaterThan(after, pageable)");
+
+        StringBuilder out = new StringBuilder(8192);
+        out.append("package ").append(basePackage).append(".service;\n");
+        out.append("\n");
+        out.append("import ").append(basePackage).append(".exception.EntityNotFoundException;\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("import ").append(basePackage).append(".repository.").append(modelName).append("Repository;\n");
+        out.append("import ").append(basePackage).append(".static_object.").append(staticObject).append(";\n");
+        for (String related : services) {
+            out.append("import ").append(basePackage).append(".static_object.Static").append(Names.stripSuffix(related, "Service")).append(";\n");
+        }
+        out.append("import org.junit.jupiter.api.BeforeEach;\n");
+        out.append("import org.junit.jupiter.api.Test;\n");
+        out.append("import org.mockito.InjectMocks;\n");
+        out.append("import org.mockito.Mock;\n");
+        out.append("import org.mockito.MockitoAnnotations;\n");
+        if (!keyset) out.append("import org.springframework.data.domain.PageRequest;\n");
+        out.append("import org.springframework.data.domain.Pageable;\n");
+        out.append("import reactor.core.publisher.Flux;\n");
+        out.append("import reactor.core.publisher.Mono;\n");
+        out.append("import reactor.test.StepVerifier;\n");
+        out.append("\n");
+        if (page) {
+            out.append("import java.util.List;\n");
+            out.append("\n");
+            out.append("import static org.junit.jupiter.api.Assertions.assertEquals;\n");
+        }
+        out.append("import static org.mockito.ArgumentMatchers.any;\n");
+        if (keyset) out.append("import static org.mockito.ArgumentMatchers.eq;\n");
+        out.append("import static org.mockito.Mockito.*;\n");
+        out.append("\n");
+        out.append("class ").append(modelName).append("ServiceTest {\n");
+        out.append("\n");
+        out.append("    @Mock\n");
+        out.append("    private ").append(modelName).append("Repository ").append(repository).append(";\n");
+        for (String related : services) {
+            out.append("    @Mock\n");
+            out.append("    private ").append(related).append(" ").append(Names.decapitalize(related)).append(";\n");
+        }
+        out.append("    @InjectMocks\n");
+        out.append("    private ").append(modelName).append("Service ").append(serviceName).append(";\n");
+        out.append("    private final ").append(className).append(" ").append(lowercaseModelName).append(" = ").append(staticObject)
+                .append(".").append(lowercaseModelName).append("1();\n");
+        out.append("    private final ").append(className).append(" ").append(second).append(" = ").append(staticObject)
+                .append(".").append(lowercaseModelName).append("2();\n");
+        out.append("\n");
+        out.append("    @BeforeEach\n");
+        out.append("    void setUp() {\n");
+        out.append("        MockitoAnnotations.openMocks(this);\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testCreate() {\n");
+        out.append("        when(").append(repository).append(".save(any(").append(className).append(".class))).thenReturn(Mono.just(")
+                .append(lowercaseModelName).append("));\n");
+        appendReactiveStubs(out, services, null);
+        out.append("\n");
+        out.append("        StepVerifier.create(").append(serviceName).append(".create(").append(lowercaseModelName).append("))\n");
+        out.append("                .expectNext(").append(lowercaseModelName).append(")\n");
+        out.append("                .verifyComplete();\n");
+        out.append("        verify(").append(repository).append(", times(1)).save(").append(lowercaseModelName).append(");\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        if (!services.isEmpty()) {
+            out.append("    @Test\n");
+            out.append("    void testCreate_RelatedEntityNotFound() {\n");
+            appendReactiveStubs(out, services, services.get(0));
+            out.append("\n");
+            out.append("        StepVerifier.create(").append(serviceName).append(".create(").append(lowercaseModelName).append("))\n");
+            out.append("                .expectError(EntityNotFoundException.class)\n");
+            out.append("                .verify();\n");
+            out.append("        verify(").append(repository).append(", never()).save(any());\n");
+            out.append("    }\n");
+            out.append("\n");
+        }
+
+        out.append("    @Test\n");
+        out.append("    void testGetById() {\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Mono.just(")
+                .append(lowercaseModelName).append("));\n");
+        out.append("\n");
+        out.append("        StepVerifier.create(").append(serviceName).append(".getById(").append(staticObject).append(".ID))\n");
+        out.append("                .expectNext(").append(lowercaseModelName).append(")\n");
+        out.append("                .verifyComplete();\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testGetById_EntityNotFoundException() {\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Mono.empty());\n");
+        out.append("\n");
+        out.append("        StepVerifier.create(").append(serviceName).append(".getById(").append(staticObject).append(".ID))\n");
+        out.append("                .expectError(EntityNotFoundException.class)\n");
+        out.append("                .verify();\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        String rows = "Flux.just(" + lowercaseModelName + ", " + second + ")";
+        if (keyset) {
+            String greaterThan = ".findBy" + Names.capitalize(model.idName()) + "GreaterThan(";
+            out.append("    @Test\n");
+            out.append("    void testGetAll_FirstPage() {\n");
+            out.append("        when(").append(repository).append(".findAllBy(any(Pageable.class))).thenReturn(").append(rows).append(");\n");
+            out.append("\n");
+            out.append("        StepVerifier.create(").append(serviceName).append(".getAll(null, 2))\n");
+            out.append("                .expectNext(").append(lowercaseModelName).append(", ").append(second).append(")\n");
+            out.append("                .verifyComplete();\n");
+            out.append("        verify(").append(repository).append(", never())").append(greaterThan).append("any(), any(Pageable.class));\n");
+            out.append("    }\n");
+            out.append("\n");
+            out.append("    @Test\n");
+            out.append("    void testGetAll_AfterCursor() {\n");
+            out.append("        when(").append(repository).append(greaterThan).append("eq(").append(staticObject).append(".ID), any(Pageable.class))).thenReturn(Flux.just(")
+                    .append(second).append("));\n");
+            out.append("\n");
+            out.append("        StepVerifier.create(").append(serviceName).append(".getAll(").append(staticObject).append(".ID, 2))\n");
+            out.append("                .expectNext(").append(second).append(")\n");
+            out.append("                .verifyComplete();\n");
+            out.append("        verify(").append(repository).append(", never()).findAllBy(any(Pageable.class));\n");
+            out.append("    }\n");
+        } else {
+            out.append("    @Test\n");
+            out.append("    void testGetAll() {\n");
+            out.append("        Pageable pageable = PageRequest.of(0, 2);\n");
+            out.append("        when(").append(repository).append(".findAllBy(pageable)).thenReturn(").append(rows).append(");\n");
+            if (page) out.append("        when(").append(repository).append(".count()).thenReturn(Mono.just(2L));\n");
+            out.append("\n");
+            out.append("        StepVerifier.create(").append(serviceName).append(".getAll(pageable))\n");
+            if (page) {
+                out.append("                .assertNext(result -> {\n");
+                out.append("                    assertEquals(List.of(").append(lowercaseModelName).append(", ").append(second).append("), result.getContent());\n");
+                out.append("                    assertEquals(2, result.getTotalElements());\n");
+                out.append("                })\n");
+            } else {
+                out.append("                .expectNext(").append(lowercaseModelName).append(", ").append(second).append(")\n");
+            }
+            out.append("                .verifyComplete();\n");
+            if (!page) out.append("        verify(").append(repository).append(", never()).count();\n");
+            out.append("    }\n");
+        }
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testUpdateById() {\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Mono.just(")
+                .append(lowercaseModelName).append("));\n");
+        out.append("        when(").append(repository).append(".save(any(").append(className).append(".class))).thenReturn(Mono.just(")
+                .append(second).append("));\n");
+        appendReactiveStubs(out, services, null);
+        out.append("\n");
+        out.append("        StepVerifier.create(").append(serviceName).append(".updateById(").append(staticObject).append(".ID, ").append(second).append("))\n");
+        out.append("                .expectNext(").append(second).append(")\n");
+        out.append("                .verifyComplete();\n");
+        out.append("        verify(").append(repository).append(", times(1)).save(").append(second).append(");\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testUpdateById_EntityNotFoundException() {\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Mono.empty());\n");
+        out.append("\n");
+        out.append("        StepVerifier.create(").append(serviceName).append(".updateById(").append(staticObject).append(".ID, ").append(second).append("))\n");
+        out.append("                .expectError(EntityNotFoundException.class)\n");
+        out.append("                .verify();\n");
+        out.append("        verify(").append(repository).append(", never()).save(any());\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testDeleteById() {\n");
+        out.append("        when(").append(repository).append(".deleteById(").append(staticObject).append(".ID)).thenReturn(Mono.empty());\n");
+        out.append("\n");
+        out.append("        StepVerifier.create(").append(serviceName).append(".deleteById(").append(staticObject).append(".ID))\n");
+        out.append("                .expectNext(true)\n");
+        out.append("                .verifyComplete();\n");
+        out.append("        verify(").append(repository).append(", times(1)).deleteById(").append(staticObject).append(".ID);\n");
+        out.append("    }\n");
+        out.append("}\n");
+        Output.write(serviceDirectory(layout).resolve(modelName + "ServiceTest.java"), out);
+    }
+
+    // Controller test of a WebFlux controller, bound to the controller without a server like the MockMvc tests
+    private static void generateReactiveControllerTest(ModuleLayout layout, ModelDescriptor model, JavaSource controller) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        String serviceName = lowercaseModelName + "Service";
+        String staticObject = "Static" + modelName;
+        String response = modelName + "DtoResponse";
+        boolean keyset = controller.contains("CursorPage<");
+        boolean slice = controller.contains("public Flux<");
+
+        String controllerApi = "/";
+        for (String line : controller.lines()) {
+            Matcher matcher = QUOTED.matcher(line);
+            if (line.contains("@RequestMapping(") && matcher.find()) {
+                controllerApi = matcher.group().replace("\"", "");
+                break;
+            }
+        }
+
+        StringBuilder out = new StringBuilder(8192);
+        out.append("package ").append(basePackage).append(".controller;\n");
+        out.append("\n");
+        out.append("import ").append(basePackage).append(".dto.mapper.").append(modelName).append("DtoMapper;\n");
+        out.append("import ").append(basePackage).append(".dto.response.").append(response).append(";\n");
+        out.append("import ").append(basePackage).append(".exception.EntityNotFoundException;\n");
+        out.append("import ").append(basePackage).append(".exception.GlobalExceptionHandler;\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("import ").append(basePackage).append(".service.").append(modelName).append("Service;\n");
+        out.append("import ").append(basePackage).append(".static_object.").append(staticObject).append(";\n");
+        out.append("import org.junit.jupiter.api.BeforeEach;\n");
+        out.append("import org.junit.jupiter.api.Test;\n");
+        out.append("import org.mockito.Mock;\n");
+        out.append("import org.mockito.MockitoAnnotations;\n");
+        if (!keyset && !slice) {
+            out.append("import org.springframework.data.domain.PageImpl;\n");
+            out.append("import org.springframework.data.domain.PageRequest;\n");
+            out.append("import org.springframework.data.domain.Pageable;\n");
+        }
+        out.append("import org.springframework.http.MediaType;\n");
+        out.append("import org.springframework.test.web.reactive.server.WebTestClient;\n");
+        if (keyset || slice) out.append("import reactor.core.publisher.Flux;\n");
+        out.append("import reactor.core.publisher.Mono;\n");
+        out.append("\n");
+        if (!keyset && !slice) {
+            out.append("import java.util.List;\n");
+            out.append("\n");
+        }
+        out.append("import static org.mockito.ArgumentMatchers.any;\n");
+        if (keyset) {
+            out.append("import static org.mockito.ArgumentMatchers.eq;\n");
+            out.append("import static org.mockito.ArgumentMatchers.isNull;\n");
+        }
+        out.append("import static org.mockito.Mockito.when;\n");
+        out.append("\n");
+        out.append("class ").append(modelName).append("ControllerTest {\n");
+        out.append("\n");
+        out.append("    private WebTestClient webTestClient;\n");
+        out.append("\n");
+        out.append("    @Mock\n");
+        out.append("    private ").append(modelName).append("Service ").append(serviceName).append(";\n");
+        out.append("\n");
+        out.append("    private final ").append(className).append(" ").append(lowercaseModelName).append("Model = ").append(staticObject)
+                .append(".").append(lowercaseModelName).append("1();\n");
+        out.append("    private final ").append(response).append(" ").append(lowercaseModelName).append("Response = ")
+                .append(modelName).append("DtoMapper.toResponse(").append(lowercaseModelName).append("Model);\n");
+        out.append("\n");
+        out.append("    @BeforeEach\n");
+        out.append("    void setUp() {\n");
+        out.append("        MockitoAnnotations.openMocks(this);\n");
+        out.append("        webTestClient = WebTestClient.bindToController(new ").append(modelName).append("Controller(").append(serviceName).append("))\n");
+        out.append("                .controllerAdvice(new GlobalExceptionHandler())\n");
+        out.append("                .build();\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testCreate_Success_ShouldReturnCreated() {\n");
+        out.append("        when(").append(serviceName).append(".create(any(").append(className).append(".class))).thenReturn(Mono.just(")
+                .append(lowercaseModelName).append("Model));\n");
+        out.append("\n");
+        out.append("        webTestClient.post().uri(\"").append(controllerApi).append("\")\n");
+        out.append("                .contentType(MediaType.APPLICATION_JSON)\n");
+        out.append("                .bodyValue(").append(staticObject).append(".").append(lowercaseModelName).append("DtoRequest1())\n");
+        out.append("                .exchange()\n");
+        out.append("                .expectStatus().isCreated()\n");
+        out.append("                .expectBody(").append(response).append(".class).isEqualTo(").append(lowercaseModelName).append("Response);\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testGetById_Success_ShouldReturnOk() {\n");
+        out.append("        when(").append(serviceName).append(".getById(").append(staticObject).append(".ID)).thenReturn(Mono.just(")
+                .append(lowercaseModelName).append("Model));\n");
+        out.append("\n");
+        out.append("        webTestClient.get().uri(\"").append(controllerApi).append("/{id}\", ").append(staticObject).append(".ID)\n");
+        out.append("                .exchange()\n");
+        out.append("                .expectStatus().isOk()\n");
+        out.append("                .expectBody(").append(response).append(".class).isEqualTo(").append(lowercaseModelName).append("Response);\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testGetById_NotFound_ShouldReturnNotFound() {\n");
+        out.append("        when(").append(serviceName).append(".getById(").append(staticObject).append(".ID)).thenReturn(Mono.error(new EntityNotFoundException(\"")
+                .append(modelName).append(" not found\")));\n");
+        out.append("\n");
+        out.append("        webTestClient.get().uri(\"").append(controllerApi).append("/{id}\", ").append(staticObject).append(".ID)\n");
+        out.append("                .exchange()\n");
+        out.append("                .expectStatus().isNotFound();\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testGetAll_Success_ShouldReturnOk() {\n");
+        if (keyset) {
+            out.append("        when(").append(serviceName).append(".getAll(isNull(), eq(3))).thenReturn(Flux.just(").append(lowercaseModelName).append("Model));\n");
+            out.append("\n");
+            out.append("        webTestClient.get().uri(\"").append(controllerApi).append("?size=2\")\n");
+            out.append("                .exchange()\n");
+            out.append("                .expectStatus().isOk()\n");
+            out.append("                .expectBody()\n");
+            out.append("                .jsonPath(\"$.content.length()\").isEqualTo(1)\n");
+            out.append("                .jsonPath(\"$.nextCursor\").isEmpty();\n");
+        } else if (slice) {
+            out.append("        when(").append(serviceName).append(".getAll(any())).thenReturn(Flux.just(").append(lowercaseModelName).append("Model));\n");
+            out.append("\n");
+            out.append("        webTestClient.get().uri(\"").append(controllerApi).append("?page=0&size=2\")\n");
+            out.append("                .exchange()\n");
+            out.append("                .expectStatus().isOk()\n");
+            out.append("                .expectBodyList(").append(response).append(".class).contains(").append(lowercaseModelName).append("Response);\n");
+        } else {
+            out.append("        when(").append(serviceName).append(".getAll(any(Pageable.class)))\n");
+            out.append("                .thenReturn(Mono.just(new PageImpl<>(List.of(").append(lowercaseModelName).append("Model), PageRequest.of(0, 2), 1)));\n");
+            out.append("\n");
+            out.append("        webTestClient.get().uri(\"").append(controllerApi).append("?page=0&size=2\")\n");
+            out.append("                .exchange()\n");
+            out.append("                .expectStatus().isOk()\n");
+            out.append("                .expectBody()\n");
+            out.append("                .jsonPath(\"$.content.length()\").isEqualTo(1)\n");
+            out.append("                .jsonPath(\"$.totalElements\").isEqualTo(1);\n");
+        }
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testUpdateById_Success_ShouldReturnCreated() {\n");
+        out.append("        when(").append(serviceName).append(".updateById(any(), any(").append(className).append(".class))).thenReturn(Mono.just(")
+                .append(lowercaseModelName).append("Model));\n");
+        out.append("\n");
+        out.append("        webTestClient.put().uri(\"").append(controllerApi).append("/{id}\", ").append(staticObject).append(".ID)\n");
+        out.append("                .contentType(MediaType.APPLICATION_JSON)\n");
+        out.append("                .bodyValue(").append(staticObject).append(".").append(lowercaseModelName).append("DtoRequest1())\n");
+        out.append("                .exchange()\n");
+        out.append("                .expectStatus().isCreated()\n");
+        out.append("                .expectBody(").append(response).append(".class).isEqualTo(").append(lowercaseModelName).append("Response);\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testDeleteById_Success_ShouldReturnNoContent() {\n");
+        out.append("        when(").append(serviceName).append(".deleteById(").append(staticObject).append(".ID)).thenReturn(Mono.just(true));\n");
+        out.append("\n");
+        out.append("        webTestClient.delete().uri(\"").append(controllerApi).append("/{id}\", ").append(staticObject).append(".ID)\n");
+        out.append("                .exchange()\n");
+        out.append("                .expectStatus().isNoContent();\n");
+        out.append("    }\n");
+        out.append("}\n");
+        Output.write(controllerDirectory(layout).resolve(modelName + "ControllerTest.java"), out);
+    }
+
+    // Runs the cached service in a small Spring context, only for services generated with caching
+    public static void generateServiceCacheTest(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        Path serviceFile = ServiceGenerator.directory(layout).resolve(modelName + "Service.java");
+        if (!Manifest.exists(serviceFile)) return;
+        JavaSource service = JavaSource.read(serviceFile);
+        if (!service.contains("@Cacheable")) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        String repository = lowercaseModelName + "Repository";
+        String serviceName = lowercaseModelName + "Service";
+        String staticObject = "Static" + modelName;
+        List<String> services = relatedServices(service);
+        String lookup = relationLookup(service);
+        boolean responses = service.contains(" getResponseById(");
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(basePackage).append(".service;\n");
+        out.append("\n");
+        out.append("import ").append(basePackage).append(".config.CacheConfig;\n");
+        if (responses) out.append("import ").append(basePackage).append(".dto.response.").append(modelName).append("DtoResponse;\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("import ").append(basePackage).append(".repository.").append(modelName).append("Repository;\n");
+        out.append("import ").append(basePackage).append(".static_object.").append(staticObject).append(";\n");
+        for (String related : services) {
+            out.append("import ").append(basePackage).append(".static_object.Static")
+                    .append(Names.stripSuffix(related, "Service")).append(";\n");
+        }
+        if (service.contains("@PersistenceContext")) out.append("import jakarta.persistence.EntityManagerFactory;\n");
+        out.append("import org.junit.jupiter.api.BeforeEach;\n");
+        out.append("import org.junit.jupiter.api.Test;\n");
+        out.append("import org.springframework.beans.factory.annotation.Autowired;\n");
+        out.append("import org.springframework.boot.test.mock.mockito.MockBean;\n");
+        out.append("import org.springframework.cache.CacheManager;\n");
+        out.append("import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;\n");
+        out.append("\n");
+        out.append("import java.util.Optional;\n");
+        out.append("\n");
+        out.append("import static org.junit.jupiter.api.Assertions.assertEquals;\n");
+        out.append("import static org.mockito.Mockito.*;\n");
+        out.append("\n");
+        out.append("@SpringJUnitConfig(classes = {CacheConfig.class, ").append(modelName).append("Service.class})\n");
+        out.append("class ").append(modelName).append("ServiceCacheTest {\n");
+        out.append("\n");
+        out.append("    @MockBean\n");
+        out.append("    private ").append(modelName).append("Repository ").append(repository).append(";\n");
+        for (String related : services) {
+            out.append("    @MockBean\n");
+            out.append("    private ").append(related).append(" ").append(Names.decapitalize(related)).append(";\n");
+        }
+        appendEntityManagerFactory(out, service);
+        out.append("\n");
+        out.append("    @Autowired\n");
+        out.append("    private ").append(modelName).append("Service ").append(serviceName).append(";\n");
+        out.append("    @Autowired\n");
+        out.append("    private CacheManager cacheManager;\n");
+        out.append("\n");
+        out.append("    @BeforeEach\n");
+        out.append("    void setUp() {\n");
+        out.append("        cacheManager.getCache(\"").append(lowercaseModelName).append("\").clear();\n");
+        if (responses) out.append("        cacheManager.getCache(\"").append(lowercaseModelName).append("Response\").clear();\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testGetById_CacheHit() {\n");
+        out.append("        ").append(className).append(" ").append(lowercaseModelName).append(" = ").append(staticObject)
+                .append(".").append(lowercaseModelName).append("1();\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Optional.of(")
+                .append(lowercaseModelName).append("));\n");
+        out.append("\n");
+        out.append("        assertEquals(").append(lowercaseModelName).append(", ").append(serviceName).append(".getById(")
+                .append(staticObject).append(".ID));\n");
+        out.append("        assertEquals(").append(lowercaseModelName).append(", ").append(serviceName).append(".getById(")
+                .append(staticObject).append(".ID));\n");
+        out.append("        verify(").append(repository).append(", times(1)).findById(").append(staticObject).append(".ID);\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        // The existence check inside updateById does not go through the cache, the read after it does. A reference update
+        // returns an entity holding proxies of its relations, so it is evicted and the next read loads the entity again
+        boolean evict = !service.contains("@CachePut");
+        out.append("    @Test\n");
+        out.append("    void testUpdateById_").append(evict ? "CacheEvict" : "CachePut").append("() {\n");
+        out.append("        ").append(className).append(" existing = ").append(staticObject).append(".").append(lowercaseModelName).append("1();\n");
+        out.append("        ").append(className).append(" updated = ").append(staticObject).append(".").append(lowercaseModelName).append("2();\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Optional.of(existing));\n");
+        out.append("        when(").append(repository).append(".save(updated)).thenReturn(updated);\n");
+        appendStubs(out, services, lookup);
+        appendChecks(out, service, modelName, services.size(), false, true);
+        out.append("\n");
+        if (evict) out.append("        ").append(serviceName).append(".getById(").append(staticObject).append(".ID);\n");
+        out.append("        ").append(serviceName).append(".updateById(").append(staticObject).append(".ID, updated);\n");
+        out.append("\n");
+        out.append("        assertEquals(").append(evict ? "existing" : "updated").append(", ").append(serviceName).append(".getById(")
+                .append(staticObject).append(".ID));\n");
+        out.append("        verify(").append(repository).append(", times(").append(evict ? 2 : 1).append(")).findById(").append(staticObject).append(".ID);\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testDeleteById_CacheEvict() {\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Optional.of(")
+                .append(staticObject).append(".").append(lowercaseModelName).append("1()));\n");
+        out.append("        ").append(serviceName).append(".getById(").append(staticObject).append(".ID);\n");
+        out.append("\n");
+        out.append("        ").append(serviceName).append(".deleteById(").append(staticObject).append(".ID);\n");
+        out.append("        ").append(serviceName).append(".getById(").append(staticObject).append(".ID);\n");
+        out.append("\n");
+        out.append("        verify(").append(repository).append(", times(2)).findById(").append(staticObject).append(".ID);\n");
+        out.append("    }\n");
+
+        // The responses are cached apart from the entities and evicted by the same writes
+        if (responses) {
+            out.append("\n");
+            out.append("    @Test\n");
+            out.append("    void testGetResponseById_CacheHitAndEvict() {\n");
+            out.append("        ").append(modelName).append("DtoResponse response = ").append(staticObject).append(".").append(lowercaseModelName)
+                    .append("DtoResponse1();\n");
+            out.append("        when(").append(repository).append(".findResponseById(").append(staticObject).append(".ID)).thenReturn(Optional.of(response));\n");
+            out.append("\n");
+            out.append("        assertEquals(response, ").append(serviceName).append(".getResponseById(").append(staticObject).append(".ID));\n");
+            out.append("        assertEquals(response, ").append(serviceName).append(".getResponseById(").append(staticObject).append(".ID));\n");
+            out.append("        ").append(serviceName).append(".deleteById(").append(staticObject).append(".ID);\n");
+            out.append("        ").append(serviceName).append(".getResponseById(").append(staticObject).append(".ID);\n");
+            out.append("\n");
+            out.append("        verify(").append(repository).append(", times(2)).findResponseById(").append(staticObject).append(".ID);\n");
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        Output.write(serviceDirectory(layout).resolve(modelName + "ServiceCacheTest.java"), out);
+    }
+
+    public static void generateControllerTest(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        Path controllerFile = ControllerGenerator.directory(layout).resolve(modelName + "Controller.java");
+        if (!Manifest.exists(controllerFile)) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        JavaSource controller = JavaSource.read(controllerFile);
+        if (controller.contains("import reactor.core.publisher.Mono;")) {
+            generateReactiveControllerTest(layout, model, controller);
+            return;
+        }
+
+        String controllerApi = "/";
+        for (String line : controller.lines()) {
+            if (line.contains("@RequestMapping(")) {
+                List<String> quoted = new ArrayList<>();
+                Matcher matcher = QUOTED.matcher(line);
+                while (matcher.find()) quoted.add(matcher.group().replace("\"", ""));
+                controllerApi = String.join("\n", quoted);
+                break;
+            }
+        }
+
+        // Expectations on every response field, repeated after each successful request
+        StringBuilder expectations = new StringBuilder(1024);
+        Path responseFile = layout.dtoResponse(modelName);
+        if (Manifest.exists(responseFile)) {
+            List<String> responseFields = new ArrayList<>();
+            for (String line : JavaSource.read(responseFile).lines()) {
+                if (line.contains("private ")) responseFields.add(line);
+            }
+            for (int i = 0; i < responseFields.size(); i++) {
+                String[] words = JavaSource.words(responseFields.get(i));
+                String typeName = JavaSource.word(words, 1);
+                String varName = JavaSource.word(words, 2);
+                if (!varName.isEmpty()) varName = varName.substring(0, varName.length() - 1);
+                String upperVarName = Names.capitalize(varName);
+                String expectation;
+                if (!typeName.isEmpty() && Manifest.exists(responseFile.resolveSibling(typeName + ".java"))) {
+                    expectation = ".andExpect(jsonPath(\"$." + varName + ".id\").value(" + lowercaseModelName
+                            + "Response.get" + upperVarName + "().getId()))";
+                } else {
+                    expectation = ".andExpect(jsonPath(\"$." + varName + "\").value(" + lowercaseModelName
+                            + "Response.get" + upperVarName + "()" + (typeName.equals("LocalDateTime") ? ".format(formatter)))" : "))");
+                }
+                if (i == responseFields.size() - 1) expectation += ";";
+                expectations.append("                ").append(expectation).append("\n");
+            }
+        }
+
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("model_name", modelName);
+        values.put("lowercase_model_name", lowercaseModelName);
+        values.put("controller_api", controllerApi);
+        values.put("class_name", className);
+        boolean dateExists = model.declaresLocalDateTime();
+
+        StringBuilder out = new StringBuilder(16384);
+        out.append("package ").append(basePackage).append(".controller;\n");
+        out.append("\n");
+        out.append("import com.fasterxml.jackson.databind.ObjectMapper;\n");
+        List<String> controllerLines = controller.lines();
+        for (int i = 3; i < controllerLines.size() && !controllerLines.get(i).contains(".service."); i++) {
+            out.append(controllerLines.get(i)).append("\n");
+        }
+        // The copy above starts after the controller's first import, which is the cursor page when it has one
+        if (controller.contains("CursorPage<")) out.append("import ").append(basePackage).append(".dto.CursorPage;\n");
+        out.append("import ").append(basePackage).append(".exception.EntityNotFoundException;\n");
+        out.append("import ").append(basePackage).append(".service.").append(modelName).append("Service;\n");
+        out.append("import ").append(basePackage).append(".static_object.Static").append(modelName).append(";\n");
+        out.append("import ").append(basePackage).append(".exception.GlobalExceptionHandler;\n");
+        Templates.get("test/controller/static1_1").render(out, values);
+        if (dateExists) out.append("import java.time.format.DateTimeFormatter;\n");
+        Templates.get("test/controller/static1_2").render(out, values);
+        if (dateExists) {
+            out.append("    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(\"yyyy-MM-dd'T'HH:mm:ss\");\n");
+        }
+        Templates.get("test/controller/static1_3").render(out, values);
+        out.append(expectations);
+        Templates.get("test/controller/static2").render(out, values);
+        out.append(expectations);
+        Templates.get("test/controller/static3").render(out, values);
+        if (controller.contains("CursorPage<")) {
+            Templates.insertAfter(out, "import static org.mockito.ArgumentMatchers.any;\n", "import static org.mockito.ArgumentMatchers.anyInt;\n");
+            replaceGetAllTests(out, "test/controller/getAllKeyset", values,
+                    "    @Test\n    void testGetAll_Success_ShouldReturnOk()", "    @Test\n    void testUpdateById_Success_ShouldReturnOk()");
+        } else if (controller.contains("Slice<")) {
+            replaceGetAllTests(out, "test/controller/getAllSlice", values,
+                    "    @Test\n    void testGetAll_Success_ShouldReturnOk()", "    @Test\n    void testUpdateById_Success_ShouldReturnOk()");
+        }
+        if (controller.contains(".getResponseById(")) {
+            // The reads stub the projections of the service and return the responses as they are
+            Templates.rewrite(out, "    @Test\n    void testGetById_Success_ShouldReturnOk()", "    @Test\n    void testUpdateById_Success_ShouldReturnOk()", Map.of(
+                    "getById(", "getResponseById(",
+                    "getAll(", "getAllResponses(",
+                    "<" + className + ">", "<" + modelName + "DtoResponse>",
+                    lowercaseModelName + "Model", lowercaseModelName + "Response",
+                    "Static" + modelName + "." + lowercaseModelName + "1()", "Static" + modelName + "." + lowercaseModelName + "DtoResponse1()"));
+        }
+        out.append(expectations);
+        Templates.get("test/controller/static4").render(out, values);
+        if (controller.contains("\"/bulk\"")) {
+            out.setLength(out.lastIndexOf("}"));
+            Templates.get("test/controller/bulk").render(out, values);
+            out.append("}");
+        }
+        if (controller.contains("\"/export\"")) {
+            // The export writes with the mapper Spring Boot would inject, which knows the java.time types
+            Templates.insertAfter(out, "import org.springframework.http.MediaType;\n", "import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;\n");
+            Templates.insertAfter(out, "import org.springframework.test.web.servlet.MockMvc;\n", "import org.springframework.test.web.servlet.MvcResult;\n");
+            Templates.insertAfter(out, "import org.springframework.test.web.servlet.setup.MockMvcBuilders;\n", "import org.springframework.util.function.ThrowingConsumer;\n");
+            Templates.insertAfter(out, "import static org.hamcrest.Matchers.hasSize;\n", "import static org.junit.jupiter.api.Assertions.assertEquals;\n");
+            out.insert(out.indexOf("import static org.mockito.Mockito.doThrow;\n"), "import static org.mockito.Mockito.doAnswer;\n");
+            Templates.rewrite(out, "    @BeforeEach\n", "    @Test\n", Map.of(
+                    "Controller(" + lowercaseModelName + "Service)", "Controller(" + lowercaseModelName + "Service, Jackson2ObjectMapperBuilder.json().build())"));
+            out.setLength(out.lastIndexOf("}"));
+            Templates.get("test/controller/export").render(out, values);
+            out.append("}");
+        }
+        Output.write(controllerDirectory(layout).resolve(modelName + "ControllerTest.java"), out);
+    }
+
+    // Runs the writes and reads with the logger at DEBUG and fails when an entity is an argument of an event at INFO or above,
+    // for services generated with the IDS or OFF logging policy
+    public static void generateServiceLoggingTest(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        Path serviceFile = ServiceGenerator.directory(layout).resolve(modelName + "Service.java");
+        if (!Manifest.exists(serviceFile) || GeneratorOptions.logging() == GeneratorOptions.Logging.FULL) return;
+        JavaSource service = JavaSource.read(serviceFile);
+        if (service.contains("import reactor.core.publisher.Mono;")) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        String repository = lowercaseModelName + "Repository";
+        String serviceName = lowercaseModelName + "Service";
+        String staticObject = "Static" + modelName;
+        List<String> services = relatedServices(service);
+        String lookup = relationLookup(service);
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(basePackage).append(".service;\n");
+        out.append("\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("import ").append(basePackage).append(".repository.").append(modelName).append("Repository;\n");
+        out.append("import ").append(basePackage).append(".static_object.").append(staticObject).append(";\n");
+        for (String related : services) {
+            out.append("import ").append(basePackage).append(".static_object.Static")
+                    .append(Names.stripSuffix(related, "Service")).append(";\n");
+        }
+        out.append("import ch.qos.logback.classic.Level;\n");
+        out.append("import ch.qos.logback.classic.Logger;\n");
+        out.append("import ch.qos.logback.classic.spi.ILoggingEvent;\n");
+        out.append("import ch.qos.logback.core.read.ListAppender;\n");
+        out.append("import org.junit.jupiter.api.AfterEach;\n");
+        out.append("import org.junit.jupiter.api.BeforeEach;\n");
+        out.append("import org.junit.jupiter.api.Test;\n");
+        out.append("import org.mockito.InjectMocks;\n");
+        out.append("import org.mockito.Mock;\n");
+        out.append("import org.mockito.MockitoAnnotations;\n");
+        out.append("import org.slf4j.LoggerFactory;\n");
+        out.append("\n");
+        out.append("import java.util.Arrays;\n");
+        out.append("import java.util.Optional;\n");
+        out.append("\n");
+        out.append("import static org.junit.jupiter.api.Assertions.assertTrue;\n");
+        out.append("import static org.mockito.ArgumentMatchers.any;\n");
+        out.append("import static org.mockito.Mockito.when;\n");
+        out.append("\n");
+        out.append("class ").append(modelName).append("ServiceLoggingTest {\n");
+        out.append("\n");
+        out.append("    @Mock\n");
+        out.append("    private ").append(modelName).append("Repository ").append(repository).append(";\n");
+        for (String related : services) {
+            out.append("    @Mock\n");
+            out.append("    private ").append(related).append(" ").append(Names.decapitalize(related)).append(";\n");
+        }
+        out.append("\n");
+        out.append("    @InjectMocks\n");
+        out.append("    private ").append(modelName).append("Service ").append(serviceName).append(";\n");
+        out.append("\n");
+        out.append("    private final Logger logger = (Logger) LoggerFactory.getLogger(").append(modelName).append("Service.class);\n");
+        out.append("    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();\n");
+        out.append("    private Level level;\n");
+        out.append("\n");
+        out.append("    @BeforeEach\n");
+        out.append("    void setUp() {\n");
+        out.append("        MockitoAnnotations.openMocks(this);\n");
+        out.append("        level = logger.getLevel();\n");
+        out.append("        logger.setLevel(Level.DEBUG);\n");
+        out.append("        appender.start();\n");
+        out.append("        logger.addAppender(appender);\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    @AfterEach\n");
+        out.append("    void tearDown() {\n");
+        out.append("        logger.detachAppender(appender);\n");
+        out.append("        logger.setLevel(level);\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testCrud_NoEntityLoggedAtInfo() {\n");
+        out.append("        ").append(className).append(" ").append(lowercaseModelName).append(" = ").append(staticObject)
+                .append(".").append(lowercaseModelName).append("1();\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Optional.of(")
+                .append(lowercaseModelName).append("));\n");
+        out.append("        when(").append(repository).append(".save(any(").append(className).append(".class))).thenReturn(")
+                .append(lowercaseModelName).append(");\n");
+        appendStubs(out, services, lookup);
+        appendChecks(out, service, modelName, services.size(), true, true);
+        out.append("\n");
+        // Created without an id, so only the id the save returned can be logged
+        out.append("        ").append(className).append(" unsaved = ").append(staticObject).append(".").append(lowercaseModelName).append("1();\n");
+        out.append("        unsaved.set").append(Names.capitalize(model.idName())).append("(null);\n");
+        out.append("        ").append(serviceName).append(".create(unsaved);\n");
+        out.append("        ").append(serviceName).append(".getById(").append(staticObject).append(".ID);\n");
+        out.append("        ").append(serviceName).append(".updateById(").append(staticObject).append(".ID, ").append(staticObject)
+                .append(".").append(lowercaseModelName).append("2());\n");
+        out.append("        ").append(serviceName).append(".deleteById(").append(staticObject).append(".ID);\n");
+        out.append("\n");
+        out.append("        for (ILoggingEvent event : appender.list) {\n");
+        out.append("            if (!event.getLevel().isGreaterOrEqual(Level.INFO) || event.getArgumentArray() == null) continue;\n");
+        out.append("            assertTrue(Arrays.stream(event.getArgumentArray()).noneMatch(").append(className)
+                .append(".class::isInstance), event.getMessage());\n");
+        out.append("        }\n");
+        if (GeneratorOptions.logging() == GeneratorOptions.Logging.IDS) {
+            out.append("        assertTrue(appender.list.stream().anyMatch(event -> event.getFormattedMessage().equals(\"").append(className)
+                    .append(" create: \" + ").append(staticObject).append(".ID)));\n");
+        }
+        out.append("    }\n");
+        out.append("}\n");
+        Output.write(serviceDirectory(layout).resolve(modelName + "ServiceLoggingTest.java"), out);
+    }
+
+    // Calls the service through the TimedAspect of MetricsConfig and checks the timers it records
+    public static void generateServiceMetricsTest(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        Path serviceFile = ServiceGenerator.directory(layout).resolve(modelName + "Service.java");
+        if (!Manifest.exists(serviceFile)) return;
+        JavaSource service = JavaSource.read(serviceFile);
+        if (!service.contains("import io.micrometer.core.annotation.Timed;")) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        String repository = lowercaseModelName + "Repository";
+        String serviceName = lowercaseModelName + "Service";
+        String staticObject = "Static" + modelName;
+        String timer = "        Timer timer = meterRegistry.get(\"service.operation\").tags(\"entity\", \"" + lowercaseModelName + "\", \"operation\", ";
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(basePackage).append(".service;\n");
+        out.append("\n");
+        out.append("import ").append(basePackage).append(".config.MetricsConfig;\n");
+        out.append("import ").append(basePackage).append(".exception.EntityNotFoundException;\n");
+        out.append("import ").append(basePackage).append(".model.").append(className).append(";\n");
+        out.append("import ").append(basePackage).append(".repository.").append(modelName).append("Repository;\n");
+        out.append("import ").append(basePackage).append(".static_object.").append(staticObject).append(";\n");
+        out.append("import io.micrometer.core.instrument.MeterRegistry;\n");
+        out.append("import io.micrometer.core.instrument.Timer;\n");
+        out.append("import io.micrometer.core.instrument.simple.SimpleMeterRegistry;\n");
+        if (service.contains("@PersistenceContext")) out.append("import jakarta.persistence.EntityManagerFactory;\n");
+        out.append("import org.junit.jupiter.api.BeforeEach;\n");
+        out.append("import org.junit.jupiter.api.Test;\n");
+        out.append("import org.springframework.beans.factory.annotation.Autowired;\n");
+        out.append("import org.springframework.boot.test.mock.mockito.MockBean;\n");
+        out.append("import org.springframework.context.annotation.Bean;\n");
+        out.append("import org.springframework.context.annotation.Configuration;\n");
+        out.append("import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;\n");
+        out.append("\n");
+        out.append("import java.util.Optional;\n");
+        out.append("\n");
+        out.append("import static org.junit.jupiter.api.Assertions.assertEquals;\n");
+        out.append("import static org.junit.jupiter.api.Assertions.assertThrows;\n");
+        out.append("import static org.mockito.Mockito.when;\n");
+        out.append("\n");
+        out.append("@SpringJUnitConfig(classes = {MetricsConfig.class, ").append(modelName).append("Service.class, ")
+                .append(modelName).append("ServiceMetricsTest.Meters.class})\n");
+        out.append("class ").append(modelName).append("ServiceMetricsTest {\n");
+        out.append("\n");
+        out.append("    @Configuration\n");
+        out.append("    static class Meters {\n");
+        out.append("        @Bean\n");
+        out.append("        MeterRegistry meterRegistry() {\n");
+        out.append("            return new SimpleMeterRegistry();\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    @MockBean\n");
+        out.append("    private ").append(modelName).append("Repository ").append(repository).append(";\n");
+        for (String related : relatedServices(service)) {
+            out.append("    @MockBean\n");
+            out.append("    private ").append(related).append(" ").append(Names.decapitalize(related)).append(";\n");
+        }
+        appendEntityManagerFactory(out, service);
+        out.append("\n");
+        out.append("    @Autowired\n");
+        out.append("    private ").append(modelName).append("Service ").append(serviceName).append(";\n");
+        out.append("    @Autowired\n");
+        out.append("    private MeterRegistry meterRegistry;\n");
+        out.append("\n");
+        out.append("    @BeforeEach\n");
+        out.append("    void setUp() {\n");
+        out.append("        meterRegistry.clear();\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testGetById_RecordsTimer() {\n");
+        out.append("        ").append(className).append(" ").append(lowercaseModelName).append(" = ").append(staticObject)
+                .append(".").append(lowercaseModelName).append("1();\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Optional.of(")
+                .append(lowercaseModelName).append("));\n");
+        out.append("\n");
+        out.append("        ").append(serviceName).append(".getById(").append(staticObject).append(".ID);\n");
+        out.append("        ").append(serviceName).append(".getById(").append(staticObject).append(".ID);\n");
+        out.append("\n");
+        out.append(timer).append("\"getById\", \"exception\", \"none\").timer();\n");
+        out.append("        assertEquals(2, timer.count());\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testGetById_NotFound_RecordsException() {\n");
+        out.append("        when(").append(repository).append(".findById(").append(staticObject).append(".ID)).thenReturn(Optional.empty());\n");
+        out.append("\n");
+        out.append("        assertThrows(EntityNotFoundException.class, () -> ").append(serviceName).append(".getById(")
+                .append(staticObject).append(".ID));\n");
+        out.append("\n");
+        out.append(timer).append("\"getById\", \"exception\", \"EntityNotFoundException\").timer();\n");
+        out.append("        assertEquals(1, timer.count());\n");
+        out.append("    }\n");
+        out.append("\n");
+
+        out.append("    @Test\n");
+        out.append("    void testDeleteById_RecordsTimer() {\n");
+        out.append("        ").append(serviceName).append(".deleteById(").append(staticObject).append(".ID);\n");
+        out.append("\n");
+        out.append(timer).append("\"deleteById\").timer();\n");
+        out.append("        assertEquals(1, timer.count());\n");
+        out.append("    }\n");
+        out.append("}\n");
+        Output.write(serviceDirectory(layout).resolve(modelName + "ServiceMetricsTest.java"), out);
+    }
+
+    // Concurrent reads on virtual threads against the blocking controller, for modules generated with the virtual-threads profile.
+    // Only the controller dispatch, the service is a mock
+    public static void generateControllerConcurrencyTest(ModuleLayout layout, ModelDescriptor model) {
+        String modelName = model.modelName();
+        Path controllerFile = ControllerGenerator.directory(layout).resolve(modelName + "Controller.java");
+        if (!Manifest.exists(controllerFile) || !GeneratorOptions.virtualThreads()) return;
+        JavaSource controller = JavaSource.read(controllerFile);
+        if (controller.contains("import reactor.core.publisher.Mono;")) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String basePackage = layout.basePackage();
+        String controllerApi = "/";
+        for (String line : controller.lines()) {
+            Matcher matcher = QUOTED.matcher(line);
+            if (line.contains("@RequestMapping(") && matcher.find()) {
+                controllerApi = matcher.group().replace("\"", "");
+                break;
+            }
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("model_name", modelName);
+        values.put("lowercase_model_name", lowercaseModelName);
+        values.put("controller_api", controllerApi);
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(basePackage).append(".controller;\n");
+        out.append("\n");
+        out.append("import ").append(basePackage).append(".exception.GlobalExceptionHandler;\n");
+        out.append("import ").append(basePackage).append(".service.").append(modelName).append("Service;\n");
+        out.append("import ").append(basePackage).append(".static_object.Static").append(modelName).append(";\n");
+        Templates.get("test/controller/concurrency").render(out, values);
+        if (controller.contains("\"/export\"")) {
+            Templates.insertAfter(out, "import org.mockito.MockitoAnnotations;\n", "import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;\n");
+            Templates.rewrite(out, "    @BeforeEach\n", "    @Test\n", Map.of(
+                    "Controller(" + lowercaseModelName + "Service)", "Controller(" + lowercaseModelName + "Service, Jackson2ObjectMapperBuilder.json().build())"));
+        }
+        if (controller.contains(".getResponseById(")) {
+            Templates.rewrite(out, "    @Test\n", "    private int getById()", Map.of(
+                    ".getById(", ".getResponseById(",
+                    "Static" + modelName + "." + lowercaseModelName + "1()", "Static" + modelName + "." + lowercaseModelName + "DtoResponse1()"));
+        }
+        Output.write(controllerDirectory(layout).resolve(modelName + "ControllerConcurrencyTest.java"), out);
+    }
+
+    // Counts the statements Hibernate runs to map a page, only for repositories that fetch relations with entity graphs
+    public static void generateRepositoryFetchTest(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        Path repositoryFile = RepositoryGenerator.directory(layout).resolve(modelName + "Repository.java");
+        if (!Manifest.exists(repositoryFile)) return;
+        JavaSource repository = JavaSource.read(repositoryFile);
+        if (!repository.contains("@EntityGraph")) return;
+
+        // One persisting method per model the fixture reaches, relations back to a model being built stay null
+        Map<String, String> builders = new LinkedHashMap<>();
+        if (!appendBuilder(builders, layout, model, new ArrayList<>())) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String lowercaseClassName = Names.decapitalize(className);
+        String basePackage = layout.basePackage();
+        String repositoryName = lowercaseModelName + "Repository";
+        String findPage = repository.contains("> findAllBy(Pageable") ? "findAllBy" : "findAll";
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(basePackage).append(".repository;\n");
+        out.append("\n");
+        out.append("import ").append(basePackage).append(".dto.mapper.").append(modelName).append("DtoMapper;\n");
+        Set<String> types = new TreeSet<>(builders.keySet());
+        for (String type : types) out.append("import ").append(basePackage).append(".model.").append(type).append(";\n");
+        for (String type : types) {
+            out.append("import ").append(basePackage).append(".static_object.Static").append(Names.stripSuffix(type, "Model")).append(";\n");
+        }
+        out.append("import org.hibernate.SessionFactory;\n");
+        out.append("import org.hibernate.stat.Statistics;\n");
+        out.append("import org.junit.jupiter.api.BeforeEach;\n");
+        out.append("import org.junit.jupiter.api.Test;\n");
+        out.append("import org.springframework.beans.factory.annotation.Autowired;\n");
+        out.append("import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;\n");
+        out.append("import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;\n");
+        out.append("import org.springframework.data.domain.PageRequest;\n");
+        out.append("\n");
+        out.append("import static org.junit.jupiter.api.Assertions.assertEquals;\n");
+        out.append("\n");
+        out.append("@DataJpaTest(properties = \"spring.jpa.properties.hibernate.generate_statistics=true\")\n");
+        out.append("class ").append(modelName).append("RepositoryFetchTest {\n");
+        out.append("\n");
+        out.append("    private static final int ROWS = 6;\n");
+        out.append("\n");
+        out.append("    @Autowired\n");
+        out.append("    private TestEntityManager entityManager;\n");
+        out.append("    @Autowired\n");
+        out.append("    private ").append(modelName).append("Repository ").append(repositoryName).append(";\n");
+        out.append("\n");
+        out.append("    private Statistics statistics;\n");
+        out.append("    private ").append(model.idType()).append(" firstId;\n");
+        if (builders.values().stream().anyMatch(builder -> builder.contains("++ids"))) out.append("    private int ids;\n");
+        out.append("\n");
+        out.append("    @BeforeEach\n");
+        out.append("    void setUp() {\n");
+        out.append("        statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();\n");
+        out.append("        firstId = ").append(lowercaseClassName).append("().get").append(Names.capitalize(model.idName())).append("();\n");
+        out.append("        for (int i = 1; i < ROWS; i++) ").append(lowercaseClassName).append("();\n");
+        out.append("        entityManager.flush();\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testGetAll_StatementsDoNotGrowWithPageSize() {\n");
+        out.append("        assertEquals(statementsToMapPage(2), statementsToMapPage(ROWS - 1));\n");
+        out.append("    }\n");
+        out.append("\n");
+        // The graph of findById also joins the EAGER associations of the entities it loads, see RepositoryGenerator
+        out.append("    @Test\n");
+        out.append("    void testGetById_LoadsRelationsWithTheEntity() {\n");
+        out.append("        entityManager.clear();\n");
+        out.append("        statistics.clear();\n");
+        out.append("\n");
+        out.append("        ").append(modelName).append("DtoMapper.toResponse(").append(repositoryName).append(".findById(firstId).orElseThrow());\n");
+        out.append("\n");
+        out.append("        assertEquals(1, statistics.getPrepareStatementCount());\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    // Statements to read the first page and map it like the controller does\n");
+        out.append("    private long statementsToMapPage(int size) {\n");
+        out.append("        entityManager.clear();\n");
+        out.append("        statistics.clear();\n");
+        out.append("        ").append(repositoryName).append(".").append(findPage).append("(PageRequest.of(0, size)).forEach(")
+                .append(modelName).append("DtoMapper::toResponse);\n");
+        out.append("        return statistics.getPrepareStatementCount();\n");
+        out.append("    }\n");
+        // The model under test first, then the models it needs
+        out.append("\n").append(builders.remove(className));
+        for (String builder : builders.values()) out.append("\n").append(builder);
+        out.append("}\n");
+        Output.write(repositoryDirectory(layout).resolve(modelName + "RepositoryFetchTest.java"), out);
+    }
+
+    // Exports a large fixture set through the JPA service and checks the persistence context, which keeps every entity
+    // read in the transaction, never holds more than a part of what was persisted
+    public static void generateServiceExportTest(ModuleLayout layout, ModelDescriptor model) {
+        String className = model.className();
+        String modelName = model.modelName();
+        Path serviceFile = ServiceGenerator.directory(layout).resolve(modelName + "Service.java");
+        if (!Manifest.exists(serviceFile)) return;
+        JavaSource service = JavaSource.read(serviceFile);
+        if (!service.contains("entityManager.clear();")) return;
+
+        Map<String, String> builders = new LinkedHashMap<>();
+        if (!appendBuilder(builders, layout, model, new ArrayList<>())) return;
+
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String lowercaseClassName = Names.decapitalize(className);
+        String basePackage = layout.basePackage();
+        String serviceName = lowercaseModelName + "Service";
+        List<String> relatedServices = relatedServices(service);
+
+        StringBuilder out = new StringBuilder(4096);
+        out.append("package ").append(basePackage).append(".service;\n");
+        out.append("\n");
+        Set<String> types = new TreeSet<>(builders.keySet());
+        for (String type : types) out.append("import ").append(basePackage).append(".model.").append(type).append(";\n");
+        for (String type : types) {
+            out.append("import ").append(basePackage).append(".static_object.Static").append(Names.stripSuffix(type, "Model")).append(";\n");
+        }
+        out.append("import org.hibernate.engine.spi.SessionImplementor;\n");
+        out.append("import org.junit.jupiter.api.BeforeEach;\n");
+        out.append("import org.junit.jupiter.api.Test;\n");
+        out.append("import org.springframework.beans.factory.annotation.Autowired;\n");
+        out.append("import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;\n");
+        out.append("import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;\n");
+        if (!relatedServices.isEmpty()) out.append("import org.springframework.boot.test.mock.mockito.MockBean;\n");
+        out.append("import org.springframework.context.annotation.Import;\n");
+        out.append("\n");
+        out.append("import java.util.concurrent.atomic.AtomicInteger;\n");
+        out.append("\n");
+        out.append("import static org.junit.jupiter.api.Assertions.assertEquals;\n");
+        out.append("import static org.junit.jupiter.api.Assertions.assertTrue;\n");
+        out.append("\n");
+        out.append("@DataJpaTest\n");
+        out.append("@Import(").append(modelName).append("Service.class)\n");
+        out.append("class ").append(modelName).append("ServiceExportTest {\n");
+        out.append("\n");
+        out.append("    private static final int ROWS = 1000;\n");
+        out.append("\n");
+        for (String related : relatedServices) {
+            out.append("    @MockBean\n");
+            out.append("    private ").append(related).append(" ").append(Names.decapitalize(related)).append(";\n");
+        }
+        out.append("    @Autowired\n");
+        out.append("    private TestEntityManager entityManager;\n");
+        out.append("    @Autowired\n");
+        out.append("    private ").append(modelName).append("Service ").append(serviceName).append(";\n");
+        out.append("\n");
+        out.append("    private SessionImplementor session;\n");
+        out.append("    private int persisted;\n");
+        if (builders.values().stream().anyMatch(builder -> builder.contains("++ids"))) out.append("    private int ids;\n");
+        out.append("\n");
+        out.append("    @BeforeEach\n");
+        out.append("    void setUp() {\n");
+        out.append("        session = entityManager.getEntityManager().unwrap(SessionImplementor.class);\n");
+        out.append("        for (int i = 0; i < ROWS; i++) ").append(lowercaseClassName).append("();\n");
+        out.append("        entityManager.flush();\n");
+        out.append("        persisted = session.getPersistenceContext().getNumberOfManagedEntities();\n");
+        out.append("        entityManager.clear();\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testExportAll_ManagedEntitiesStayBounded() {\n");
+        out.append("        AtomicInteger exported = new AtomicInteger();\n");
+        out.append("        AtomicInteger managed = new AtomicInteger();\n");
+        out.append("\n");
+        out.append("        ").append(serviceName).append(".exportAll(").append(lowercaseModelName).append("DtoResponse -> {\n");
+        out.append("            exported.incrementAndGet();\n");
+        out.append("            managed.accumulateAndGet(session.getPersistenceContext().getNumberOfManagedEntities(), Math::max);\n");
+        out.append("        });\n");
+        out.append("\n");
+        out.append("        assertEquals(ROWS, exported.get());\n");
+        out.append("        assertTrue(managed.get() < persisted, \"The export kept \" + managed.get() + \" of \" + persisted + \" entities\");\n");
+        out.append("    }\n");
+        // The model under test first, then the models it needs
+        out.append("\n").append(builders.remove(className));
+        for (String builder : builders.values()) out.append("\n").append(builder);
+        out.append("}\n");
+        Output.write(serviceDirectory(layout).resolve(modelName + "ServiceExportTest.java"), out);
+    }
+
+    // Persists a fresh copy of the first fixture with new ids and fresh related entities, false when the ids cannot be made up
+    private static boolean appendBuilder(Map<String, String> builders, ModuleLayout layout, ModelDescriptor model, List<String> building) {
+        String className = model.className();
+        String modelName = model.modelName();
+        String variable = Names.decapitalize(className);
+        String id;
+        if (JavaSource.read(model.path()).contains("@GeneratedValue")) {
+            id = "null";
+        } else {
+            id = switch (model.idType()) {
+                case "String" -> "\"" + model.idName() + "\" + ++ids";
+                case "Long" -> "(long) ++ids";
+                case "Integer" -> "++ids";
+                case "UUID" -> "java.util.UUID.randomUUID()";
+                default -> null;
+            };
+            if (id == null) return false;
+        }
+
+        building.add(className);
+        StringBuilder out = new StringBuilder(512);
+        out.append("    private ").append(className).append(" ").append(variable).append("() {\n");
+        out.append("        ").append(className).append(" ").append(variable).append(" = Static").append(modelName).append(".")
+                .append(Names.decapitalize(modelName)).append("1();\n");
+        out.append("        ").append(variable).append(".set").append(Names.capitalize(model.idName())).append("(").append(id).append(");\n");
+        for (JavaSource.Field field : model.fields()) {
+            ModelDescriptor related = layout.model(field.type());
+            if (related == null) continue;
+            String value = "null";
+            if (!building.contains(related.className())) {
+                if (!builders.containsKey(related.className()) && !appendBuilder(builders, layout, related, building)) return false;
+                value = Names.decapitalize(related.className()) + "()";
+            }
+            out.append("        ").append(variable).append(".set").append(Names.capitalize(field.name())).append("(").append(value).append(");\n");
+        }
+        out.append("        return entityManager.persist(").append(variable).append(");\n");
+        out.append("    }\n");
+        building.remove(className);
+        builders.put(className, out.toString());
+        return true;
+    }
+
+    // Fixture value for the simple types, null for relations and collections
+    private static String literal(String fieldType, String fieldName, int variant) {
+        return switch (fieldType) {
+            case "String" -> "\"" + fieldName + "\"";
+            case "Long" -> variant + "L";
+            case "Integer" -> String.valueOf(variant);
+            case "BigDecimal" -> "new BigDecimal(" + variant * 10 + ")";
+            case "LocalDateTime" -> "LocalDateTime.MIN";
+            case "Double" -> variant * 10 + "D";
+            default -> null;
+        };
+    }
+
+    // The @PersistenceContext of an exporting service is resolved against an EntityManagerFactory, contexts without JPA mock one
+    private static void appendEntityManagerFactory(StringBuilder out, JavaSource service) {
+        if (!service.contains("@PersistenceContext")) return;
+        out.append("    @MockBean\n");
+        out.append("    private EntityManagerFactory entityManagerFactory;\n");
+    }
+
+    // Related services are every 'private final' field after the repository
+    private static List<String> relatedServices(JavaSource service) {
+        List<String> services = new ArrayList<>();
+        List<String> fieldLines = service.matching(Pattern.compile(Pattern.quote("private final")));
+        for (int i = 1; i < fieldLines.size(); i++) {
+            services.add(fieldLines.get(i).replaceFirst("private final ([^ ]*) .*", "$1").strip());
+        }
+        return services;
+    }
+
+    // Method the service calls on its related services, reference lookups when it was generated with them
+    private static String relationLookup(JavaSource service) {
+        return service.contains("Service.getReferenceById(") ? "getReferenceById" : "getById";
+    }
+
+    private static String stub(String related, String lookup) {
+        String object = Names.stripSuffix(related, "Service");
+        return "        when(" + Names.decapitalize(related) + "." + lookup + "(Static" + object + ".ID)).thenReturn(Static"
+                + object + "." + Names.decapitalize(object) + "1());";
+    }
+
+    // Related services answer with their first fixture, or with not found for the missing one
+    private static void appendReactiveStubs(StringBuilder out, List<String> services, String missing) {
+        for (String related : services) {
+            String object = Names.stripSuffix(related, "Service");
+            out.append("        when(").append(Names.decapitalize(related)).append(".getById(Static").append(object).append(".ID)).thenReturn(");
+            if (related.equals(missing)) {
+                out.append("Mono.error(new EntityNotFoundException(\"").append(object).append(" not found\")));\n");
+            } else {
+                out.append("Mono.just(Static").append(object).append(".").append(Names.decapitalize(object)).append("1()));\n");
+            }
+        }
+    }
+
+    private static void appendStubs(StringBuilder out, List<String> services, String lookup) {
+        for (String related : services) {
+            out.append(stub(related, lookup)).append("\n");
+        }
+    }
+
+    // The service's own reference lookup: a proxy without any query, the writes that take it checked the entity before
+    private static void appendReferenceTests(StringBuilder out, String modelName, String className) {
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String repository = lowercaseModelName + "Repository";
+        String id = "Static" + modelName + ".ID";
+        out.append("    @Test\n");
+        out.append("    void testGetReferenceById_Success() {\n");
+        out.append("        when(").append(repository).append(".getReferenceById(").append(id).append(")).thenReturn(")
+                .append(lowercaseModelName).append(");\n");
+        out.append("\n");
+        out.append("        ").append(className).append(" result = ").append(lowercaseModelName).append("Service.getReferenceById(").append(id).append(");\n");
+        out.append("\n");
+        out.append("        assertEquals(").append(lowercaseModelName).append(", result);\n");
+        out.append("        verify(").append(repository).append(", never()).findById(").append(id).append(");\n");
+        out.append("        verify(").append(repository).append(", never()).existsById(").append(id).append(");\n");
+        out.append("    }\n");
+        out.append("\n");
+    }
+
+    // Lets the check of a reference write pass: the count of the related entities, or whether the updated entity exists
+    private static void appendChecks(StringBuilder out, JavaSource service, String modelName, int relations, boolean create, boolean update) {
+        String repository = Names.decapitalize(modelName) + "Repository";
+        String any = String.join(", ", Collections.nCopies(relations, "any()"));
+        if (service.contains(repository + ".countRelated(")) {
+            if (create) out.append("        when(").append(repository).append(".countRelated(").append(any).append(")).thenReturn(1L);\n");
+            if (update) out.append("        when(").append(repository).append(".countWithRelated(any(), ").append(any).append(")).thenReturn(1L);\n");
+        } else if (update && service.contains(repository + ".existsById(id)")) {
+            out.append("        when(").append(repository).append(".existsById(Static").append(modelName).append(".ID)).thenReturn(true);\n");
+        }
+    }
+
+    // Reads that return the selected response, the entity is never loaded
+    private static void appendProjectionTests(StringBuilder out, String modelName, String pagination) {
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String repository = lowercaseModelName + "Repository";
+        String serviceName = lowercaseModelName + "Service";
+        String response = modelName + "DtoResponse";
+        String id = "Static" + modelName + ".ID";
+        String page = pagination.equals("page") ? "Page" : "Slice";
+        out.append("    @Test\n");
+        out.append("    void testGetResponseById_Success() {\n");
+        out.append("        ").append(response).append(" response = Static").append(modelName).append(".").append(lowercaseModelName).append("DtoResponse1();\n");
+        out.append("        when(").append(repository).append(".findResponseById(").append(id).append(")).thenReturn(java.util.Optional.of(response));\n");
+        out.append("\n");
+        out.append("        assertEquals(response, ").append(serviceName).append(".getResponseById(").append(id).append("));\n");
+        out.append("        verify(").append(repository).append(", never()).findById(any());\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testGetResponseById_EntityNotFoundException() {\n");
+        out.append("        when(").append(repository).append(".findResponseById(").append(id).append(")).thenReturn(java.util.Optional.empty());\n");
+        out.append("\n");
+        out.append("        assertThrows(EntityNotFoundException.class, () -> ").append(serviceName).append(".getResponseById(").append(id).append("));\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testGetAllResponses() {\n");
+        out.append("        ").append(page).append("<").append(response).append("> responses = new ").append(page).append("Impl<>(List.of(Static")
+                .append(modelName).append(".").append(lowercaseModelName).append("DtoResponse1()), Pageable.ofSize(2), ")
+                .append(pagination.equals("page") ? "1" : "false").append(");\n");
+        if (pagination.equals("keyset")) {
+            out.append("        when(").append(repository).append(".findResponsesByIdGreaterThan(eq(").append(id).append("), any(Pageable.class))).thenReturn(responses);\n");
+            out.append("\n");
+            out.append("        assertSame(responses, ").append(serviceName).append(".getAllResponses(").append(id).append(", 2));\n");
+            out.append("        verify(").append(repository).append(", never()).findAllResponses(any(Pageable.class));\n");
+        } else {
+            out.append("        when(").append(repository).append(".findAllResponses(any(Pageable.class))).thenReturn(responses);\n");
+            out.append("\n");
+            out.append("        assertSame(responses, ").append(serviceName).append(".getAllResponses(Pageable.ofSize(2)));\n");
+        }
+        out.append("        verify(").append(repository).append(", never()).findAll(any(Pageable.class));\n");
+        out.append("    }\n");
+        out.append("\n");
+    }
+
+    // The static files test getAll with a Page, services and controllers generated with slices or keyset pages get their own tests
+    private static void replaceGetAllTests(StringBuilder out, String template, Map<String, String> values, String from, String to) {
+        Templates.insertAfter(out, "import org.springframework.data.domain.Pageable;\n",
+                "import org.springframework.data.domain.Slice;\nimport org.springframework.data.domain.SliceImpl;\n");
+        Templates.replace(out, from, to, template, values);
+    }
+
+    // The list writes: one lookup per related service for the whole list, nothing is saved when an id is not found
+    private static void appendBulkTests(StringBuilder out, String modelName, String className, List<String> services, boolean inBatch) {
+        String lowercaseModelName = Names.decapitalize(modelName);
+        String repository = lowercaseModelName + "Repository";
+        String serviceName = lowercaseModelName + "Service";
+        String id = "Static" + modelName + ".ID";
+        String list = lowercaseModelName + "List";
+        List<String> stubs = new ArrayList<>();
+        for (String related : services) {
+            String object = Names.stripSuffix(related, "Service");
+            stubs.add("        when(" + Names.decapitalize(related) + ".getAllById(anyCollection())).thenReturn(java.util.Map.of(Static"
+                    + object + ".ID, Static" + object + "." + Names.decapitalize(object) + "1()));");
+        }
+
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testCreateAll_Success() {\n");
+        out.append("        List<").append(className).append("> ").append(list).append(" = List.of(").append(lowercaseModelName)
+                .append(", ").append(lowercaseModelName).append("2);\n");
+        for (String stub : stubs) out.append(stub).append("\n");
+        out.append("        when(").append(repository).append(".saveAll(").append(list).append(")).thenReturn(").append(list).append(");\n");
+        out.append("\n");
+        out.append("        List<").append(className).append("> result = ").append(serviceName).append(".createAll(").append(list).append(");\n");
+        out.append("\n");
+        out.append("        assertEquals(").append(list).append(", result);\n");
+        for (String related : services) {
+            out.append("        verify(").append(Names.decapitalize(related)).append(", times(1)).getAllById(anyCollection());\n");
+        }
+        out.append("        verify(").append(repository).append(", times(1)).saveAll(").append(list).append(");\n");
+        out.append("    }\n");
+
+        for (int i = 0; i < services.size(); i++) {
+            String object = Names.stripSuffix(services.get(i), "Service");
+            out.append("\n");
+            out.append("    @Test\n");
+            out.append("    void testCreateAll_EntityNotFoundException_").append(object).append("NotFound() {\n");
+            for (String stub : stubs.subList(0, i)) out.append(stub).append("\n");
+            out.append("        when(").append(Names.decapitalize(services.get(i))).append(".getAllById(anyCollection())).thenThrow(new EntityNotFoundException(\"")
+                    .append(object).append(" not found\"));\n");
+            out.append("\n");
+            out.append("        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () -> ").append(serviceName)
+                    .append(".createAll(List.of(").append(lowercaseModelName).append(")));\n");
+            out.append("\n");
+            out.append("        assertEquals(\"").append(object).append(" not found\", exception.getMessage());\n");
+            out.append("        verify(").append(repository).append(", never()).saveAll(anyList());\n");
+            out.append("    }\n");
+        }
+
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testUpdateAll_Success() {\n");
+        out.append("        when(").append(repository).append(".findAllById(anyCollection())).thenReturn(List.of(").append(lowercaseModelName).append("));\n");
+        for (String stub : stubs) out.append(stub).append("\n");
+        out.append("        when(").append(repository).append(".saveAll(anyList())).thenReturn(List.of(").append(lowercaseModelName).append("2));\n");
+        out.append("\n");
+        out.append("        List<").append(className).append("> result = ").append(serviceName).append(".updateAll(java.util.Map.of(")
+                .append(id).append(", ").append(lowercaseModelName).append("2));\n");
+        out.append("\n");
+        out.append("        assertEquals(List.of(").append(lowercaseModelName).append("2), result);\n");
+        out.append("        verify(").append(repository).append(", times(1)).findAllById(anyCollection());\n");
+        out.append("        verify(").append(repository).append(", times(1)).saveAll(anyList());\n");
+        out.append("    }\n");
+
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testUpdateAll_EntityNotFoundException() {\n");
+        out.append("        when(").append(repository).append(".findAllById(anyCollection())).thenReturn(List.of());\n");
+        out.append("\n");
+        out.append("        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () -> ").append(serviceName)
+                .append(".updateAll(java.util.Map.of(").append(id).append(", ").append(lowercaseModelName).append("2)));\n");
+        out.append("\n");
+        out.append("        assertEquals(\"").append(modelName).append(" with id: \" + ").append(id).append(" + \" does not exist\", exception.getMessage());\n");
+        out.append("        verify(").append(repository).append(", never()).saveAll(anyList());\n");
+        out.append("    }\n");
+
+        String delete = inBatch ? "deleteAllByIdInBatch" : "deleteAllById";
+        out.append("\n");
+        out.append("    @Test\n");
+        out.append("    void testDeleteAllById_Success() {\n");
+        out.append("        boolean result = ").append(serviceName).append(".deleteAllById(List.of(").append(id).append("));\n");
+        out.append("\n");
+        out.append("        verify(").append(repository).append(").").append(delete).append("(List.of(").append(id).append("));\n");
+        out.append("        assertTrue(result);\n");
+        out.append("    }\n");
+    }
+
+    // One test per related service: the earlier ones resolve, the current one is not found
+    private static void appendNotFoundTests(StringBuilder out, List<String> services, String lookup, String testName, String setUp,
+                                            String call, String finalCheck) {
+        List<String> stubs = new ArrayList<>();
+        List<String> verifications = new ArrayList<>();
+        for (String related : services) {
+            String object = Names.stripSuffix(related, "Service");
+            String serviceName = Names.decapitalize(related);
+            out.append("    @Test\n");
+            out.append("    void ").append(testName).append("_EntityNotFoundException_").append(object).append("NotFound() {\n");
+            if (setUp != null) out.append(setUp);
+            for (String stub : stubs) out.append(stub).append("\n");
+            out.append("        when(").append(serviceName).append(".").append(lookup).append("(Static").append(object)
+                    .append(".ID)).thenThrow(new EntityNotFoundException(\"").append(object).append(" not found\"));\n");
+            out.append("\n");
+            out.append("        EntityNotFoundException exception = assertThrows(EntityNotFoundException.class, () -> ").append(call).append(");\n");
+            out.append("\n");
+            out.append("        assertNotNull(exception);\n");
+            out.append("        assertEquals(\"").append(object).append(" not found\", exception.getMessage());\n");
+            verifications.add("        verify(" + serviceName + ", times(1))." + lookup + "(Static" + object + ".ID);");
+            for (String verification : verifications) out.append(verification).append("\n");
+            out.append(finalCheck);
+            out.append("    }\n");
+            out.append("\n");
+            stubs.add(stub(related, lookup));
+        }
+    }
+}
@@ -2,7 +2,7 @@
 
 # Check if the directory path is provided as an argument
 if [[ -z "$1" ]]; then
-    echo "Usage: $0 <path-to-directory-with-pom.xml>"
+    echo "Usage: $0 <path-to-directory-with-pom.xml> [cache] [fetch] [reactive] [virtual] [metrics] [export] [indexes]"
     exit 1
 fi
 
@@ -18,6 +18,24 @@ if [[ ! -f "$pom_file" ]]; then
     exit 1
 fi
 
+# spring.threads.virtual.enabled needs Spring Boot 3.2 and virtual threads need Java 21
+if [[ " ${*:2} " == *" virtual "* ]]; then
+    boot_version=$(sed -n '/<parent>/,/<\/parent>/p' "$pom_file" | grep -o '<version>[^<]*</version>' | head -n 1 | sed 's/<[^>]*>//g')
+    java_version=$(grep -o '<java.version>[^<]*</java.version>' "$pom_file" | head -n 1 | sed 's/<[^>]*>//g')
+    boot_major=$(echo "$boot_version" | cut -d '.' -f 1)
+    boot_minor=$(echo "$boot_version" | cut -d '.' -f 2)
+    if [[ -z "$boot_version" ]]; then
+        echo "Warning: no Spring Boot parent version in $pom_file, virtual threads need Spring Boot 3.2 or later"
+    elif [[ ! "$boot_major" =~ ^[0-9]+$ || ! "$boot_minor" =~ ^[0-9]+$ ]] || (( boot_major < 3 || (boot_major == 3 && boot_minor < 2) )); then
+        echo "Error: virtual threads need Spring Boot 3.2 or later, $pom_file uses $boot_version"
+        exit 1
+    fi
+    if [[ -n "$java_version" && "$java_version" =~ ^[0-9]+$ ]] && (( java_version < 21 )); then
+        echo "Error: virtual threads need Java 21 or later, $pom_file uses $java_version"
+        exit 1
+    fi
+fi
+
 
 # Define the required dependencies
 
@@ -46,6 +64,89 @@ required_dependencies=(
     '        </dependency>'
 )
 
+# Caching of entity reads in the services
+if [[ " ${*:2} " == *" cache "* ]]; then
+    required_dependencies+=(
+        '        <dependency>'\
+        '            <groupId>org.springframework.boot</groupId>'\
+        '            <artifactId>spring-boot-starter-cache</artifactId>'\
+        '        </dependency>'\
+        '        <dependency>'\
+        '            <groupId>com.github.ben-manes.caffeine</groupId>'\
+        '            <artifactId>caffeine</artifactId>'\
+        '        </dependency>'
+    )
+fi
+
+# Query count tests of the entity graphs and the export tests run on an embedded database
+if [[ " ${*:2} " == *" fetch "* || " ${*:2} " == *" export "* ]]; then
+    required_dependencies+=(
+        '        <dependency>'\
+        '            <groupId>com.h2database</groupId>'\
+        '            <artifactId>h2</artifactId>'\
+        '            <scope>test</scope>'\
+        '        </dependency>'
+    )
+fi
+
+# Reactive modules run on WebFlux instead of Spring MVC, both starters together would start MVC
+if [[ " ${*:2} " == *" reactive "* ]]; then
+    required_dependencies=("${required_dependencies[@]/spring-boot-starter-web</spring-boot-starter-webflux<}")
+    required_dependencies=("${required_dependencies[@]/webmvc-ui</webflux-ui<}")
+    required_dependencies+=(
+        '        <dependency>'\
+        '            <groupId>io.projectreactor</groupId>'\
+        '            <artifactId>reactor-test</artifactId>'\
+        '            <scope>test</scope>'\
+        '        </dependency>'
+    )
+    # The Spring MVC starters the pom declares are replaced, keeping their version
+    for starter in spring-boot-starter-web springdoc-openapi-starter-webmvc-ui; do
+        webflux="${starter/%web/webflux}"
+        webflux="${webflux/webmvc-ui/webflux-ui}"
+        if grep -q "<artifactId>$starter</artifactId>" "$pom_file" && ! grep -q "<artifactId>$webflux</artifactId>" "$pom_file"; then
+            sed "s#<artifactId>$starter</artifactId>#<artifactId>$webflux</artifactId>#" "$pom_file" > tmpfile && mv tmpfile "$pom_file"
+        fi
+    done
+fi
+
+# Service timers: actuator for the meter registry, the aspect that records @Timed and the Prometheus endpoint
+if [[ " ${*:2} " == *" metrics "* ]]; then
+    required_dependencies+=(
+        '        <dependency>'\
+        '            <groupId>org.springframework.boot</groupId>'\
+        '            <artifactId>spring-boot-starter-actuator</artifactId>'\
+        '        </dependency>'\
+        '        <dependency>'\
+        '            <groupId>org.springframework.boot</groupId>'\
+        '            <artifactId>spring-boot-starter-aop</artifactId>'\
+        '        </dependency>'\
+        '        <dependency>'\
+        '            <groupId>io.micrometer</groupId>'\
+        '            <artifactId>micrometer-registry-prometheus</artifactId>'\
+        '            <scope>runtime</scope>'\
+        '        </dependency>'
+    )
+fi
+
+
+# Lines of the <dependencies> of the project, not the ones of dependencyManagement, a plugin or a profile
+project_dependencies() {
+    awk '/<(dependencyManagement|build|profiles)>/ { nested++ }
+         /<\/(dependencyManagement|build|profiles)>/ { nested-- }
+         nested == 0 && /<dependencies>/ { inside = 1 }
+         inside { print NR ":" $0 }
+         inside && /<\/dependencies>/ { exit }' "$pom_file"
+}
+# Flyway applies the index migration of the JPA models at startup, Mongo models get their indexes from a config class
+if [[ " ${*:2} " == *" indexes "* ]] && grep -rqs --include='*.java' '@Entity' "$directory/src/main/java"; then
+    required_dependencies+=(
+        '        <dependency>'\
+        '            <groupId>org.flywaydb</groupId>'\
+        '            <artifactId>flyway-core</artifactId>'\
+        '        </dependency>'
+    )
+fi
 
 # Function to check if a dependency exists in the pom.xml
 dependency_exists() {
@@ -65,8 +166,8 @@ dependency_exists() {
          exit 1
      fi
 
-     # Extract substring between <dependencies> and </dependencies> tags
-     local substring=$(sed -n '/<dependencies>/,/<\/dependencies>/p' "$pom_file")
+     # Extract substring between <dependencies> and </dependencies> tags of the project
+     local substring=$(project_dependencies)
 
      # Check if the artifact_id exists within the substring
      if [[ "$substring" =~ $artifact_id ]]; then
@@ -79,7 +180,7 @@ dependency_exists() {
 
 # Function to add a dependency to the pom.xml using awk
 add_dependencies() {
-    line_number=$(grep -n '</dependencies>' "$pom_file" | head -n 1 | cut -d ':' -f 1)
+    line_number=$(project_dependencies | tail -n 1 | cut -d ':' -f 1)
     local start_index="$1"
     local found=false
     for ((i = start_index; i < ${#required_dependencies[@]}; i++)); do